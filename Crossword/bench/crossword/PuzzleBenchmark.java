@@ -0,0 +1,183 @@
+package crossword;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+/**
+ * JMH benchmarks of the hot paths of a game: the mutations a player makes with guessWord(), eraseWord() and check(),
+ * serializing the puzzle for clients with makeClientString(), making a game with its rep checks, and parsing a puzzle file.
+ * Each benchmark runs on consistent puzzles of 10, 100 and 1000 entries made by PuzzleGenerator, whose words cross.
+ *
+ * <p> The benchmarks are not part of the build of the project: compile them together with all of src/ against jmh-core and
+ * jmh-generator-annprocess, with the grammar files on the classpath, and run them with the JMH runner, e.g.
+ * <pre>
+ * javac -cp lib/parserlib.jar:jmh-core.jar:jmh-generator-annprocess.jar:jopt-simple.jar:commons-math3.jar -d bin $(find src bench -name '*.java')
+ * cp src/crossword/*.g bin/crossword/
+ * java -cp bin:lib/parserlib.jar:jmh-core.jar:jopt-simple.jar:commons-math3.jar org.openjdk.jmh.Main PuzzleBenchmark
+ * </pre>
+ * Forks run without -ea, like the server in production; add {@code -jvmArgsAppend -ea} to time the checkRep() assertions too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzzleBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int entries;
+
+    private String puzzleString;
+    private PuzzleTemplate template;
+    private List<Entry> entryList;
+    private String[] wrongGuesses;
+
+    private Puzzle puzzle;
+    private boolean[] guessedWrong;
+    private int next;
+
+    /**
+     * Generate the puzzle of this trial, shared by all its iterations
+     *
+     * @throws UnableToParseException if the generated puzzle does not parse, which is a bug
+     */
+    @Setup(Level.Trial)
+    public void makePuzzle() throws UnableToParseException {
+        this.puzzleString = PuzzleParserBenchmark.makePuzzleString(this.entries);
+        this.template = PuzzleParser.parse(this.puzzleString).getTemplate();
+        this.entryList = this.template.getEntryList();
+        this.wrongGuesses = new String[this.entryList.size()];
+        for (int i = 0; i < this.wrongGuesses.length; i++) {
+            this.wrongGuesses[i] = "z".repeat(this.entryList.get(i).getWord().length());
+        }
+    }
+
+    /**
+     * Start each iteration on a new game, with every word guessed right
+     */
+    @Setup(Level.Iteration)
+    public void makeGame() {
+        this.puzzle = new Puzzle(this.template);
+        for (int i = 0; i < this.entryList.size(); i++) {
+            this.puzzle.guessWord(i, this.entryList.get(i).getWord());
+        }
+        this.guessedWrong = new boolean[this.entryList.size()];
+        this.next = 0;
+    }
+
+    /**
+     * @return the index of the entry the next operation works on, going round every entry of the puzzle
+     */
+    private int nextIndex() {
+        final int index = this.next;
+        this.next = (this.next + 1) % this.entryList.size();
+        return index;
+    }
+
+    /**
+     * Guess an entry wrong, or right again if it was guessed wrong the last time round, so that every guess changes the board.
+     *
+     * @return the version of the game
+     */
+    @Benchmark
+    public long guessWord() {
+        final int index = nextIndex();
+        this.guessedWrong[index] = !this.guessedWrong[index];
+        this.puzzle.guessWord(index, this.guessedWrong[index] ? this.wrongGuesses[index] : this.entryList.get(index).getWord());
+        return this.puzzle.getVersion();
+    }
+
+    /**
+     * Erase an entry that was guessed right; it is guessed right again first, so this also times one guessWord().
+     *
+     * @return the version of the game
+     */
+    @Benchmark
+    public long eraseWord() {
+        final int index = nextIndex();
+        this.puzzle.guessWord(index, this.entryList.get(index).getWord());
+        this.puzzle.eraseWord(index);
+        return this.puzzle.getVersion();
+    }
+
+    /**
+     * Check a board with one wrong guess; the guess is made first, so this also times one guessWord().
+     *
+     * @return the version of the game
+     */
+    @Benchmark
+    public long check() {
+        final int index = nextIndex();
+        this.puzzle.guessWord(index, this.wrongGuesses[index]);
+        this.puzzle.check();
+        return this.puzzle.getVersion();
+    }
+
+    /**
+     * Serialize the game for a client after a guess, as the server does for each update it sends.
+     *
+     * @return the client string
+     */
+    @Benchmark
+    public String makeClientString() {
+        guessWord();
+        return this.puzzle.makeClientString();
+    }
+
+    /**
+     * Serialize the game for a client again without a change in between, which is served from the cached string.
+     *
+     * @return the client string
+     */
+    @Benchmark
+    public String makeClientStringUnchanged() {
+        return this.puzzle.makeClientString();
+    }
+
+    /**
+     * Make a new game on the shared template, with its checkRep().
+     *
+     * @return the new game
+     */
+    @Benchmark
+    public Puzzle newPuzzle() {
+        return new Puzzle(this.template);
+    }
+
+    /**
+     * Make a new template from the entries of the puzzle, validating that they form a consistent crossword.
+     *
+     * @return the new template
+     */
+    @Benchmark
+    public PuzzleTemplate newTemplate() {
+        return new PuzzleTemplate(this.entryList, this.template.getName(), this.template.getDescription());
+    }
+
+    /**
+     * Parse the puzzle file.
+     *
+     * @return the parsed puzzle
+     * @throws UnableToParseException if the puzzle does not parse, which is a bug
+     */
+    @Benchmark
+    public Puzzle parse() throws UnableToParseException {
+        return PuzzleParser.parse(this.puzzleString);
+    }
+}
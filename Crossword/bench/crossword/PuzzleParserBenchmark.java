@@ -0,0 +1,104 @@
+package crossword;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+/**
+ * Compares the speed of the hand-written parsers with the parserlib versions they replaced:
+ * PuzzleParser.parse() with PuzzleParser.parseWithParserlib(), and MinimalPuzzleParser.parse() with 
+ * MinimalPuzzleParser.parseWithParserlib(). Also times MinimalPuzzle.applyDelta() on a delta guessing one word,
+ * which is what a client watching a game decodes for each update.
+ *
+ * <p> Like PuzzleBenchmark, it is compiled together with src/ but is not part of the build of the project. Command-line usage:
+ * <pre> java crossword.PuzzleParserBenchmark [ENTRIES [ITERATIONS]] </pre>
+ * parses a generated puzzle of ENTRIES entries (default 1000) ITERATIONS times (default 200) with each parser,
+ * after as many warm-up iterations, and prints the mean time per parse. Run without -ea, so that checkRep() is not timed.
+ */
+public class PuzzleParserBenchmark {
+
+    private static final int HINT_LENGTH = 20;
+
+    /**
+     * Interface for a parser under test.
+     */
+    private interface ParserUnderTest {
+        Object parse(String string) throws UnableToParseException;
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args number of entries and of iterations, both optional
+     * @throws UnableToParseException if the generated puzzle does not parse, which is a bug
+     */
+    public static void main(String[] args) throws UnableToParseException {
+        final int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        final String puzzle = makePuzzleString(entries);
+
+        System.out.println(String.format("%d entries, %d characters, %d iterations", entries, puzzle.length(), iterations));
+        compare("puzzle", PuzzleParser::parseWithParserlib, PuzzleParser::parse, puzzle, iterations);
+
+        final Puzzle game = PuzzleParser.parse(puzzle);
+        final String clientString = game.makeClientString();
+        compare("client puzzle", MinimalPuzzleParser::parseWithParserlib, MinimalPuzzleParser::parse, clientString, iterations);
+
+        final long version = game.getVersion();
+        game.guessWord(0, game.getEntryList().get(0).getWord());
+        final String delta = game.makeClientDeltaString(version);
+        final MinimalPuzzle minimalPuzzle = MinimalPuzzleParser.parse(clientString);
+        final double deltaMillis = time(string -> minimalPuzzle.applyDelta(string, version), delta, iterations);
+        System.out.println(String.format("client delta of one guess, applyDelta: %10.3f ms/update", deltaMillis));
+    }
+
+    /**
+     * Time two parsers on the same string and print the results.
+     *
+     * @param what name of the kind of string parsed
+     * @param parserlib the parserlib parser
+     * @param handWritten the hand-written parser
+     * @param string string to parse
+     * @param iterations number of timed parses
+     * @throws UnableToParseException if string does not parse
+     */
+    private static void compare(String what, ParserUnderTest parserlib, ParserUnderTest handWritten,
+            String string, int iterations) throws UnableToParseException {
+        final double parserlibMillis = time(parserlib, string, iterations);
+        final double handWrittenMillis = time(handWritten, string, iterations);
+        System.out.println(String.format("%s, parserlib:    %10.3f ms/parse", what, parserlibMillis));
+        System.out.println(String.format("%s, hand-written: %10.3f ms/parse", what, handWrittenMillis));
+        System.out.println(String.format("%s, speedup:      %10.1fx", what, parserlibMillis / handWrittenMillis));
+    }
+
+    /**
+     * @param entries number of entries
+     * @return a consistent puzzle string with that many entries, generated by PuzzleGenerator on a square board
+     *         of about 10 cells per entry, at least 15 x 15
+     */
+    static String makePuzzleString(int entries) {
+        final int side = Math.max(15, (int) Math.ceil(Math.sqrt(10.0 * entries)));
+        return PuzzleGenerator.generate("Benchmark", side, side, entries, HINT_LENGTH, 0);
+    }
+
+    /**
+     * @param parser parser to time
+     * @param puzzle string to parse
+     * @param iterations number of timed parses, after as many untimed ones
+     * @return mean milliseconds per timed parse
+     * @throws UnableToParseException if puzzle does not parse
+     */
+    private static double time(ParserUnderTest parser, String puzzle, int iterations) throws UnableToParseException {
+        int checksum = 0;
+        for (int i = 0; i < iterations; i++) {
+            checksum += parser.parse(puzzle).hashCode();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            checksum += parser.parse(puzzle).hashCode();
+        }
+        final long elapsed = System.nanoTime() - start;
+        if (checksum == 0) {
+            System.out.println("checksum 0");
+        }
+        return elapsed / 1e6 / iterations;
+    }
+}
@@ -19,11 +19,15 @@ public class Entry {
     // Representation Invariant
     // - 0 <= row, col
     // - guess.length() = word.length()
+    // - hashCode is the hash of the other fields, computed by makeHashCode()
     //
     // Safety from rep exposure
     // - all fields private and final
     // - all fields immutable
     //
+    // The rep is checked once, at the end of each constructor: nothing can change it afterwards, so the getters, 
+    // which run in the inner loops of Puzzle, do not check it again.
+    //
     // Thread safety argument
     //   Datatype is threadsafe immutable
     //      - no mutators, all fields are private and final, no rep exposure
@@ -35,6 +39,7 @@ public class Entry {
     private final int row;
     private final int col;
     private final String guess;
+    private final int hashCode;
     
     /**
      * Creates a new instance of Entry
@@ -53,6 +58,8 @@ public class Entry {
         this.row = row;
         this.col = col;
         this.guess = guess;
+        this.hashCode = makeHashCode();
+        checkRep();
     }
     
     /**
@@ -70,6 +77,8 @@ public class Entry {
         this.row = row;
         this.col = col;
         this.guess = "*".repeat(word.length());
+        this.hashCode = makeHashCode();
+        checkRep();
     }
     
     /**
@@ -81,6 +90,21 @@ public class Entry {
 //        assert this.hint.matches("[^\"\\r\\n\\t\\\\]*"); //  ask about regex representation
 //        assert this.word.matches("[a-z]+");
         assert this.guess.length() == this.word.length();
+        assert this.hashCode == makeHashCode();
+    }
+    
+    /**
+     * @return a hash of all the fields compared by equals(), mixing them so that entries with e.g. the same 
+     *         word lengths and coordinate sums still get different hash codes
+     */
+    private int makeHashCode() {
+        int hash = this.word.hashCode();
+        hash = 31 * hash + this.hint.hashCode();
+        hash = 31 * hash + this.direction.ordinal();
+        hash = 31 * hash + this.row;
+        hash = 31 * hash + this.col;
+        hash = 31 * hash + this.guess.hashCode();
+        return hash;
     }
     
     /**
@@ -88,7 +112,6 @@ public class Entry {
      * @return String word represents the word in our entry
      */
     public String getWord() {
-        checkRep();
         return this.word;
     }
     
@@ -97,7 +120,6 @@ public class Entry {
      * @return hint String hint represents the hint in our entry
      */
     public String getHint() {
-        checkRep();
         return this.hint;
     }
     
@@ -106,7 +128,6 @@ public class Entry {
      * @return direction Direction representing the direction of the word in our entry
      */
     public Direction getDirection() {
-        checkRep();
         return this.direction;
     }
     
@@ -115,7 +136,6 @@ public class Entry {
      * @return row Integer row representing the row index in our board of the first letter of the word in our entry
      */
     public int getRow() {
-        checkRep();
         return this.row;
     }
     
@@ -124,7 +144,6 @@ public class Entry {
      * @return col Integer col representing the column index in our board of the first letter of the word in our entry
      */
     public int getCol() {
-        checkRep();
         return this.col;
     }
     
@@ -133,7 +152,6 @@ public class Entry {
      * @return guess String the current guessed word
      */
     public String getGuess() {
-        checkRep();
         return this.guess;
     }
     
@@ -146,11 +164,11 @@ public class Entry {
     }
     
     /**
-     * returns hash code of our instance of Entry
+     * returns hash code of our instance of Entry, computed once when it was made
      */
     @Override
     public int hashCode() {
-        return this.word.length() + this.hint.length() + this.direction.toString().length() + this.row + this.col;
+        return this.hashCode;
     }
     
     /**
@@ -159,6 +177,7 @@ public class Entry {
     @Override
     public boolean equals(Object that) {
         return (that instanceof Entry && 
+                this.hashCode == ((Entry) that).hashCode &&
                 this.word.equals(((Entry) that).word) &&
                 this.hint.equals(((Entry) that).hint) &&
                 this.direction.equals(((Entry) that).direction) &&
@@ -0,0 +1,87 @@
+package crossword;
+
+import java.util.Optional;
+
+/**
+ * Immutable data type representing one operation of a batch of guesses on a puzzle: guessing a word for an entry, or erasing it
+ *
+ */
+public class EntryGuess {
+
+    private final int index;
+    private final Optional<String> guess;
+
+    // Abstraction function:
+    //   AF(index, guess) = guessing guess.get() for the entry numbered index of a puzzle if guess is present,
+    //                      or erasing the guess of that entry if guess is empty
+    // Representation invariant:
+    //   index >= 0
+    //   guess is empty or a nonempty string
+    // Safety from rep exposure:
+    //   all fields are private, final, and immutable
+    // Thread safety argument:
+    //   Datatype is threadsafe immutable:
+    //     - no mutators, all fields are private and final, no rep exposure
+
+    private EntryGuess(int index, Optional<String> guess) {
+        this.index = index;
+        this.guess = guess;
+        checkRep();
+    }
+
+    /**
+     * @param index index of an entry, must be >= 0
+     * @param guess the guessed word, must be nonempty
+     * @return the operation of guessing guess for the entry numbered index
+     */
+    public static EntryGuess guess(int index, String guess) {
+        return new EntryGuess(index, Optional.of(guess));
+    }
+
+    /**
+     * @param index index of an entry, must be >= 0
+     * @return the operation of erasing the guess of the entry numbered index
+     */
+    public static EntryGuess erase(int index) {
+        return new EntryGuess(index, Optional.empty());
+    }
+
+    private void checkRep() {
+        assert index >= 0;
+        assert guess.isEmpty() || !guess.get().isEmpty();
+    }
+
+    /**
+     * @return the index of the entry this operation applies to
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the guessed word, or empty if this operation erases the entry
+     */
+    public Optional<String> getGuess() {
+        return guess;
+    }
+
+    @Override
+    public String toString() {
+        return guess.isPresent() ? "guess " + index + " " + guess.get() : "erase " + index;
+    }
+
+    @Override
+    public boolean equals(Object that) {
+        return that instanceof EntryGuess && this.sameValue((EntryGuess) that);
+    }
+
+    private boolean sameValue(EntryGuess that) {
+        return this.index == that.index && this.guess.equals(that.guess);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * index + guess.hashCode();
+    }
+
+}
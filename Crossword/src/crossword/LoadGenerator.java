@@ -0,0 +1,274 @@
+package crossword;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+/**
+ * Measures how WebServer behaves with many concurrent players. Starts a WebServer in this process on an ephemeral
+ * port of the loopback interface, serving a puzzle made by PuzzleGenerator, and simulates GAMES games of PLAYERS players.
+ * Every player sends /guess, /erase and /check requests one after another, as fast as the server answers them, while
+ * a watcher of the same player long-polls /watchGame for deltas. When the time is up, every player exits its game,
+ * which releases the watchers, and the throughput and the 50th, 99th and 99.9th percentile latencies of each endpoint
+ * are printed. The latency of /watchGame is the time a watcher waited for the next change.
+ *
+ * <p> Command-line usage:
+ * <pre> java crossword.LoadGenerator [--nio] [GAMES [PLAYERS [SECONDS [ENTRIES]]]] </pre>
+ * with defaults of 10 games of 10 players for 10 seconds on a puzzle of 100 entries, served by the HttpServer of the JDK,
+ * or by NioHttpServer with --nio. The server logs every request
+ * to System.err, so System.err is discarded while the load runs, and the formatting of the log is included in the timings.
+ */
+public class LoadGenerator {
+
+    private static final double GUESS_FRACTION = 0.6;
+    private static final double ERASE_FRACTION = 0.3;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int SUCCESS = 200;
+
+    /**
+     * Latencies of the requests to one endpoint, in nanoseconds. Not threadsafe: each player and watcher has its own.
+     */
+    private static class Latencies {
+        private long[] samples = new long[1024];
+        private int size = 0;
+
+        void add(long nanos) {
+            if (this.size == this.samples.length) {
+                this.samples = Arrays.copyOf(this.samples, this.size * 2);
+            }
+            this.samples[this.size++] = nanos;
+        }
+
+        void addAll(Latencies that) {
+            for (int i = 0; i < that.size; i++) {
+                add(that.samples[i]);
+            }
+        }
+
+        /**
+         * @param fraction must be 0 < fraction <= 1
+         * @return the smallest latency that is at least as long as that fraction of the latencies, in milliseconds;
+         *         requires the latencies to be sorted
+         */
+        double percentile(double fraction) {
+            final int rank = (int) Math.ceil(fraction * this.size);
+            return this.samples[Math.max(rank, 1) - 1] / 1e6;
+        }
+    }
+
+    /**
+     * Run the load and print the results.
+     *
+     * @param args optionally --nio, then numbers of games, players per game, seconds and entries of the puzzle, all optional
+     * @throws IOException if the server cannot be started
+     * @throws InterruptedException if interrupted while the load runs
+     * @throws UnableToParseException if the generated puzzle does not parse, which is a bug
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, UnableToParseException {
+        final boolean nio = args.length > 0 && args[0].equals("--nio");
+        if (nio) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        final int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final int players = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        final int entries = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        final int side = Math.max(15, (int) Math.ceil(Math.sqrt(10.0 * entries)));
+        final Puzzle puzzle = PuzzleParser.parse(PuzzleGenerator.generate("load", side, side, entries, 20, 0));
+        final InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of("load", puzzle)), loopback, false,
+                nio ? WebServer.Transport.NIO : WebServer.Transport.JDK);
+        server.start();
+        System.out.println(String.format("%d games x %d players for %d s, puzzle of %d entries, %s server on port %d",
+                games, players, seconds, entries, nio ? "NIO" : "JDK", server.port()));
+
+        final PrintStream err = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        final Map<String, Latencies> results;
+        final double elapsedSeconds;
+        try {
+            final long start = System.nanoTime();
+            results = runLoad(server.port(), puzzle.getEntryList(), games, players, seconds);
+            elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        } finally {
+            System.setErr(err);
+            server.stop();
+        }
+
+        System.out.println(String.format("%-12s %10s %10s %10s %10s %10s %10s",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map.Entry<String, Latencies> result : results.entrySet()) {
+            final Latencies latencies = result.getValue();
+            Arrays.sort(latencies.samples, 0, latencies.size);
+            System.out.println(String.format("%-12s %10d %10.0f %10.3f %10.3f %10.3f %10.3f",
+                    result.getKey(), latencies.size, latencies.size / elapsedSeconds,
+                    latencies.percentile(0.5), latencies.percentile(0.99), latencies.percentile(0.999), latencies.percentile(1)));
+        }
+    }
+
+    /**
+     * Create the games, run the players and watchers until the time is up, and make every player exit.
+     *
+     * @param port port of the server, on the loopback interface
+     * @param entries entries of the puzzle "load" of the server
+     * @param games number of games
+     * @param players number of players per game
+     * @param seconds how long the players play
+     * @return the latencies of each endpoint
+     * @throws IOException if a game cannot be created or joined
+     * @throws InterruptedException if interrupted
+     */
+    private static Map<String, Latencies> runLoad(int port, List<Entry> entries, int games, int players, int seconds)
+            throws IOException, InterruptedException {
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final String base = "http://localhost:" + port;
+        final Latencies setup = new Latencies();
+        for (int game = 0; game < games; game++) {
+            // games are numbered in order of creation on a new server
+            send(client, base + "/createGame/" + playerID(game, 0) + "/load", setup);
+            for (int player = 1; player < players; player++) {
+                send(client, base + "/joinExistingGame/" + playerID(game, player) + "/" + game, setup);
+            }
+        }
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final ExecutorService threads = Executors.newCachedThreadPool();
+        final List<Future<Map<String, Latencies>>> workers = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            for (int player = 0; player < players; player++) {
+                final String playerID = playerID(game, player);
+                final long seed = game * (long) players + player;
+                workers.add(threads.submit(() -> play(client, base, playerID, entries, seed, running)));
+                workers.add(threads.submit(() -> watch(client, base, playerID, running)));
+            }
+        }
+        threads.shutdown();
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        final Map<String, Latencies> results = new TreeMap<>();
+        for (int i = 0; i < workers.size(); i += 2) {
+            // a player exits only after its last request, so its watcher is released after the player stops
+            collect(workers.get(i), results);
+        }
+        for (int game = 0; game < games; game++) {
+            for (int player = 0; player < players; player++) {
+                send(client, base + "/exitGame/" + playerID(game, player), setup);
+            }
+        }
+        for (int i = 1; i < workers.size(); i += 2) {
+            collect(workers.get(i), results);
+        }
+        threads.awaitTermination(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        return results;
+    }
+
+    /**
+     * Play a game as fast as the server allows: guess an entry right or wrong, erase an entry, or check the puzzle
+     *
+     * @return the latencies of each endpoint used
+     */
+    private static Map<String, Latencies> play(HttpClient client, String base, String playerID, List<Entry> entries,
+            long seed, AtomicBoolean running) throws IOException, InterruptedException {
+        final Random random = new Random(seed);
+        final Latencies guess = new Latencies();
+        final Latencies erase = new Latencies();
+        final Latencies check = new Latencies();
+        while (running.get()) {
+            final double operation = random.nextDouble();
+            final int index = random.nextInt(entries.size());
+            if (operation < GUESS_FRACTION) {
+                final String word = entries.get(index).getWord();
+                final String letters = random.nextBoolean() ? word : "z".repeat(word.length());
+                send(client, base + "/guess/" + playerID + "/" + index + "/" + letters, guess);
+            } else if (operation < GUESS_FRACTION + ERASE_FRACTION) {
+                send(client, base + "/erase/" + playerID + "/" + index, erase);
+            } else {
+                send(client, base + "/check/" + playerID, check);
+            }
+        }
+        return Map.of("/guess", guess, "/erase", erase, "/check", check);
+    }
+
+    /**
+     * Watch the game of a player for deltas, like a client does, until the player exits
+     *
+     * @return the latencies of /watchGame
+     */
+    private static Map<String, Latencies> watch(HttpClient client, String base, String playerID, AtomicBoolean running)
+            throws IOException, InterruptedException {
+        final Latencies watch = new Latencies();
+        long version = 0;
+        while (running.get()) {
+            final long start = System.nanoTime();
+            final HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create(base + "/watchGame/" + playerID + "?since=" + version + "&delta=true")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != SUCCESS) {
+                // the player exited
+                break;
+            }
+            watch.add(System.nanoTime() - start);
+            final String body = response.body().trim();
+            version = Long.parseLong(body.substring(body.lastIndexOf('|') + 1));
+        }
+        return Map.of("/watchGame", watch);
+    }
+
+    /**
+     * Send a GET request and record its latency
+     *
+     * @throws IOException if the request fails or the server does not answer it with success
+     */
+    private static void send(HttpClient client, String url, Latencies latencies) throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT).build();
+        final long start = System.nanoTime();
+        final HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        latencies.add(System.nanoTime() - start);
+        if (response.statusCode() != SUCCESS) {
+            throw new IOException(url + " failed with " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    /**
+     * Wait for a player or watcher and add its latencies to results
+     */
+    private static void collect(Future<Map<String, Latencies>> worker, Map<String, Latencies> results) throws InterruptedException {
+        try {
+            for (Map.Entry<String, Latencies> latencies : worker.get().entrySet()) {
+                results.computeIfAbsent(latencies.getKey(), endpoint -> new Latencies()).addAll(latencies.getValue());
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException("a simulated player failed", e.getCause());
+        }
+    }
+
+    /**
+     * @return the id of a simulated player
+     */
+    private static String playerID(int game, int player) {
+        return "load" + game + "x" + player;
+    }
+}
@@ -2,9 +2,7 @@ package crossword;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import edu.mit.eecs.parserlib.UnableToParseException;
 
@@ -111,53 +109,76 @@ public class MinimalPuzzle {
 //            this.currentWord.put(newEntry.getIndex(), "");
             this.entryList.add(newEntry);
         }
-        this.numRows = getDims(entryList).get(0);
-        this.numCols = getDims(entryList).get(1);
+        final List<Integer> dims = getDims(entryList);
+        this.numRows = dims.get(0);
+        this.numCols = dims.get(1);
     }
     
+    /**
+     * Make a new minimal puzzle that takes ownership of an already copied list of minimal entries
+     * @param entryList the list of minimal entries, must not be shared with any client
+     * @param name the name of the puzzle
+     * @param description the description of the puzzle
+     * @param numRows the number of rows of the board
+     * @param numCols the number of columns of the board
+     */
+    private MinimalPuzzle(List<MinimalEntry> entryList, String name, String description, int numRows, int numCols) {
+        this.entryList = entryList;
+        this.name = name;
+        this.description = description;
+        this.numRows = numRows;
+        this.numCols = numCols;
+    }
     
     /**
-     * Check if two entries of the puzzle overlap in an invalid way
+     * Apply a delta string produced by the server to this puzzle
      * 
-     * @param entry1 the first entry
-     * @param entry2 the second entry
-     * @return true if the two entries share more than one common cells on the puzzle grid, false otherwise
+     * @param delta a delta string following the DELTA grammar of Puzzle.makeClientDeltaString
+     * @param version the version of the game state this puzzle represents
+     * @return a new MinimalPuzzle equal to this one except for the guesses listed in delta; entries not listed in delta 
+     *         are shared with this puzzle rather than copied
+     * @throws IllegalArgumentException if delta cannot be parsed, does not apply to version, or does not fit this puzzle
      */
-    private boolean overlapping(MinimalEntry entry1, MinimalEntry entry2) {
-        Set<List<Integer>> entry1Coords = new HashSet<>();
-        Set<List<Integer>> entry2Coords = new HashSet<>();
-        if (entry1.getDirection().equals(Direction.DOWN)) {
-            for (Integer i = 0; i < entry1.getLength(); i++) {
-                entry1Coords.add(List.of(entry1.getRow() + i, entry1.getCol()));
-            }
-        }
-        else {
-            for (Integer i = 0; i < entry1.getLength(); i++) {
-                entry1Coords.add(List.of(entry1.getRow(), entry1.getCol() + i));
-            }
-        }
-        if (entry2.getDirection().equals(Direction.DOWN)) {
-            for (Integer i = 0; i < entry2.getLength(); i++) {
-                entry2Coords.add(List.of(entry2.getRow() + i, entry2.getCol()));
+    public MinimalPuzzle applyDelta(String delta, long version) throws IllegalArgumentException {
+        final List<MinimalEntry> newEntryList = new ArrayList<>(this.entryList);
+        try {
+            // one pass over delta, reading each guess straight into its entry
+            final TextCursor cursor = new TextCursor(delta);
+            cursor.expect("~~");
+            cursor.skipWhitespace();
+            if (cursor.number(Long.MAX_VALUE) != version) {
+                throw new IllegalArgumentException("not a delta for version " + version);
             }
-        } 
-        else {
-            for (Integer i = 0; i < entry2.getLength(); i++) {
-                entry2Coords.add(List.of(entry2.getRow(), entry2.getCol() + i));
+            cursor.skipWhitespace();
+            while (!cursor.atEnd()) {
+                cursor.expect('(');
+                cursor.skipWhitespace();
+                final int index = cursor.integer();
+                cursor.skipWhitespace();
+                cursor.expect(',');
+                cursor.skipWhitespace();
+                final String guess = cursor.quotedString();
+                cursor.expect(')');
+                cursor.skipWhitespace();
+                if (index >= newEntryList.size() || guess.length() != newEntryList.get(index).getLength()) {
+                    throw new IllegalArgumentException("delta does not fit this puzzle");
+                }
+                final MinimalEntry old = newEntryList.get(index);
+                newEntryList.set(index, new MinimalEntry(index, old.getHint(), old.getDirection(), old.getRow(), old.getCol(), old.getLength(), guess));
             }
+        } catch (UnableToParseException e) {
+            throw new IllegalArgumentException("Unable to parse input", e);
         }
-        entry1Coords.retainAll(entry2Coords);
-        return (entry1Coords.size() > 1);
+        return new MinimalPuzzle(newEntryList, this.name, this.description, this.numRows, this.numCols);
     }
     
+    
+    // runs on every comparison, so it can be turned off with RepChecks
     private void checkRep() {
-        for (MinimalEntry entry1: this.entryList) {
-            for (MinimalEntry entry2: this.entryList) {
-                if (!entry1.equals(entry2)) {
-                    assert !overlapping(entry1, entry2);
-                }
-            }
+        if (!RepChecks.hotChecksEnabled()) {
+            return;
         }
+        assert PuzzleValidator.validateLayout(this.entryList).isEmpty();
         for (int idx = 0; idx <= entryList.size() - 1; idx ++) {
             MinimalEntry entry = this.entryList.get(idx);
             assert idx == entry.getIndex();
@@ -1,7 +1,7 @@
 package crossword;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -39,7 +39,14 @@ public class MinimalPuzzleParser {
         STRING, INT, WHITESPACE
     }
 
-    private static Parser<MinimalPuzzleGrammar> parser = makeParser();
+    /**
+     * Holds the parser compiled from the grammar. The grammar is only compiled when parseWithParserlib() first needs it,
+     * since parse() does not; class initialization makes that happen once, safely for all threads.
+     * A Parser keeps no state between calls to parse(), so this one is shared by all threads.
+     */
+    private static class ParserHolder {
+        private static final Parser<MinimalPuzzleGrammar> PARSER = makeParser();
+    }
     
     /**
      * Compile the grammar into a parser.
@@ -48,10 +55,12 @@ public class MinimalPuzzleParser {
      * @throws RuntimeException if grammar file can't be read or has syntax errors
      */
     private static Parser<MinimalPuzzleGrammar> makeParser() {
-        try {
-            // read the grammar as a file, relative to the project root.
-            final File grammarFile = new File("src/crossword/MinimalPuzzle.g");
-            return Parser.compile(grammarFile, MinimalPuzzleGrammar.FILE);
+        // read the grammar from the classpath, next to this class, so it is found whatever the working directory
+        try (InputStream grammar = MinimalPuzzleParser.class.getResourceAsStream("MinimalPuzzle.g")) {
+            if (grammar == null) {
+                throw new IOException("MinimalPuzzle.g not found on the classpath");
+            }
+            return Parser.compile(grammar, MinimalPuzzleGrammar.FILE);
             
         // Parser.compile() throws two checked exceptions.
         // Translate these checked exceptions into unchecked RuntimeExceptions,
@@ -66,13 +75,93 @@ public class MinimalPuzzleParser {
     /**
      * Parse a string into a minimal puzzle.
      * 
+     * <p> Uses a hand-written recursive-descent parser for the grammar in MinimalPuzzle.g, which accepts the same strings
+     * and makes the same puzzles as parseWithParserlib(), without building a parse tree.
+     * 
      * @param string string to parse
      * @return MinimalPuzzle parsed from the entire string
-     * @throws UnableToParseException if the string doesn't match the MinimalPuzzle grammar
+     * @throws UnableToParseException if the string doesn't match the MinimalPuzzle grammar, giving the line and column where it stopped matching
      */
     public static MinimalPuzzle parse(final String string) throws UnableToParseException {
+        final TextCursor cursor = new TextCursor(string);
+        
+        // FILE ::= ">>" NAME DESCRIPTION ENTRY*;
+        cursor.skipWhitespace();
+        cursor.expect(">>");
+        cursor.skipWhitespace();
+        final String name = cursor.quotedString();
+        final String description = cursor.quotedString();
+        final List<MinimalEntry> entryList = new ArrayList<>();
+        while (cursor.lookingAt('(')) {
+            entryList.add(parseEntry(cursor));
+        }
+        if (!cursor.atEnd()) {
+            throw cursor.error("(");
+        }
+        
+        return new MinimalPuzzle(entryList, name, description);
+    }
+    
+    /**
+     * Parse ENTRY ::= "(" INDEX "," CLUE "," DIRECTION "," ROW "," COL "," LENGTH "," GUESS ")" and the whitespace after it.
+     * 
+     * @param cursor positioned at the start of an entry, advanced past it
+     * @return the minimal entry parsed
+     * @throws UnableToParseException if the next characters are not an entry
+     */
+    private static MinimalEntry parseEntry(final TextCursor cursor) throws UnableToParseException {
+        cursor.expect('(');
+        cursor.skipWhitespace();
+        
+        final int index = cursor.integerRule();
+        cursor.expect(',');
+        cursor.skipWhitespace();
+        
+        final String clue = cursor.quotedString();
+        cursor.expect(',');
+        cursor.skipWhitespace();
+        
+        // DIRECTION ::= "DOWN" | "ACROSS"; as with parserlib, its text includes the whitespace after it,
+        // so only a "DOWN" directly followed by "," is DOWN
+        final boolean down = cursor.tryConsume("DOWN");
+        if (!down && !cursor.tryConsume("ACROSS")) {
+            throw cursor.error("DOWN or ACROSS");
+        }
+        final boolean spaced = cursor.skipWhitespace();
+        final Direction direction = down && !spaced ? Direction.DOWN : Direction.ACROSS;
+        cursor.expect(',');
+        cursor.skipWhitespace();
+        
+        final int row = cursor.integerRule();
+        cursor.expect(',');
+        cursor.skipWhitespace();
+        
+        final int col = cursor.integerRule();
+        cursor.expect(',');
+        cursor.skipWhitespace();
+        
+        final int length = cursor.integerRule();
+        cursor.expect(',');
+        cursor.skipWhitespace();
+        
+        final String guess = cursor.quotedString();
+        cursor.expect(')');
+        cursor.skipWhitespace();
+        
+        return new MinimalEntry(index, clue, direction, row, col, length, guess);
+    }
+    
+    /**
+     * Parse a string into a minimal puzzle with parserlib and the grammar in MinimalPuzzle.g.
+     * This is the reference implementation of parse(), which is faster.
+     * 
+     * @param string string to parse
+     * @return MinimalPuzzle parsed from the entire string
+     * @throws UnableToParseException if the string doesn't match the MinimalPuzzle grammar
+     */
+    static MinimalPuzzle parseWithParserlib(final String string) throws UnableToParseException {
         // parse the example into a parse tree
-        final ParseTree<MinimalPuzzleGrammar> parseTree = parser.parse(string);
+        final ParseTree<MinimalPuzzleGrammar> parseTree = ParserHolder.PARSER.parse(string);
 
         // display the parse tree in various ways, for debugging only
 //          System.out.println("parse tree " + parseTree);
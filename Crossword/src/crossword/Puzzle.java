@@ -1,286 +1,283 @@
 package crossword;
 
-
-import java.util.HashMap;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import edu.mit.eecs.parserlib.UnableToParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 import java.util.HashSet;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 
 /**
  * A mutable datatype representing a crossword puzzle. Our board has a name, description, and set of words. 
  * Each word in our crossword puzzle has a corresponding hint, a direction, and starting location.
+ * The layout of the puzzle is an immutable PuzzleTemplate that can be shared by many puzzles, each with its own guesses.
  *  
  */
 public class Puzzle {
     
     // Abstraction Function
-    // AF(entryList, isComplete, numRows, numCols, boardList, locationMap, directionMap, name, description, players) -> a crossword puzzle with
-    // name name and descriptor description whose dimensions are numRows x numCols, whose state is isComplete, and whose words, hints, locations,
-    // directions, and guesses are contained inside entryList (and mapped to with locationMap, directionMap, and boardList),
-    // and whose set of active players is players
+    // AF(template, entryList, isComplete, guessGrid, players, clientEntryStrings, clientString, version, entryVersions, playersVersion, nextChange) 
+    // -> a crossword puzzle with the name, description, dimensions, words, hints, locations and directions of template, whose state is isComplete, 
+    // and whose guesses are contained inside entryList.
+    // guessGrid holds the currently guessed letter of each cell of template's board ('*' if unguessed), laid out as in template.
+    // The set of active players is players.
+    // clientEntryStrings[i] is the line describing entryList.get(i) in the minimal client string, and clientString caches
+    // the whole minimal client string (see makeClientString), or is null if it has to be rebuilt.
+    // version counts the changes made to the guesses, completion state and players of the puzzle since it was created;
+    // entryVersions[i] is the version at which the guess of entryList.get(i) last changed (0 if never), and playersVersion
+    // the version at which players last changed (0 if never).
+    // nextChange is completed with the version of the next change when it happens, or is null if no one is waiting for it
     
     // Representation Invariant
-    // - all words in the entries of entryList must be unique
-    // - if two words intersect on the board, they must intersect at the same letter
-    // - no words can overlap on the board
+    // - entryList.size() == template.getEntryList().size(), and entryList.get(i) differs from template.getEntryList().get(i) only in its guess
+    // - guessGrid.length == template.getNumCells()
+    // - for every entry e = entryList.get(i) and 0 <= j < e.getWord().length(), with cell the index of the j-th letter of e:
+    //     guessGrid[cell] == e.getGuess().charAt(j)
+    // - clientEntryStrings.length == entryList.size(), and clientEntryStrings[i] describes the current guess of entryList.get(i)
+    // - clientString == null or clientString is the minimal client string of the current state of the puzzle
+    // - version >= 0, and version never decreases
+    // - entryVersions.length == entryList.size(), 0 <= entryVersions[i] <= version, 0 <= playersVersion <= version
+    // - nextChange == null or nextChange is not done
+    // (the invariants of the words themselves, e.g. that they are unique and do not overlap, are checked by template)
     //
     // Safety from rep exposure
     // - all fields private
-    // - all fields final except isComplete, which is not shared with the client
-    // - numRows, numCols, name, description immutable
-    // - we make a deep copy of entryList to avoid sharing rep's entryList with clients
-    // - locationMap and directionMap initialized in constructor
+    // - all fields final except isComplete, clientString, version, playersVersion and nextChange, which are primitives, immutable or never returned
+    // - template is immutable, so it can be shared with clients and other puzzles
+    // - entryList is only returned as an unmodifiable view, and Entry is immutable
+    // - the grid arrays and clientEntryStrings are built in the constructor and never returned to clients
+    // - nextChange is never returned to clients, only copies of it, so clients cannot complete it
     //
     // Thread safety argument
     // - Our Puzzle ADT is thread safe via the monitor pattern.
-    // - Entry, which we use in Puzzle, is also thread safe.
+    // - Threads waiting for a change wait on a copy of nextChange, outside the monitor, so they hold no lock while waiting,
+    //   and a virtual thread waiting for a change does not pin its carrier thread.
+    // - Entry and PuzzleTemplate, which we use in Puzzle, are threadsafe immutable.
     
+    private final PuzzleTemplate template;
     private final List<Entry> entryList;
     private boolean isComplete;
-    private final int numRows;
-    private final int numCols;
-    private final List<String> boardList;
-    private final Map<String, List<Integer>> locationMap;
-    private final Map<String, Direction> directionMap;
-    private final String name;
-    private final String description;
+    private final char[] guessGrid;
     private final Set<String> players;
+    private final String[] clientEntryStrings;
+    private String clientString;
+    private long version;
+    private final long[] entryVersions;
+    private long playersVersion;
+    private CompletableFuture<Long> nextChange;
     
     
     /**
-     * Make a new puzzle by parsing a file
+     * Make a new puzzle by parsing a file. Safe to call from many threads at once: the file is read in one shot 
+     *   and parsed with PuzzleParser's shared immutable parser, so loads never wait for each other
      * 
      * @param filepath the file path starting from the folder where the puzzles are located
      * @return a new Puzzle that represents the puzzle in filename
-     * @throws IllegalArgumentException
-     * @throws IOException
+     * @throws IllegalArgumentException if the file does not follow the grammar Puzzle.g, or its entries are not consistent
+     * @throws IOException if the file cannot be read
      */
-    public static synchronized Puzzle parseFromFile(String filepath) throws IllegalArgumentException, IOException {
+    public static Puzzle parseFromFile(String filepath) throws IllegalArgumentException, IOException {
+        final String allLines;
         try {
-            BufferedReader reader = new BufferedReader(new FileReader(filepath));
-            String allLines = reader.lines().collect(Collectors.joining());
-            reader.close();
-            try {
-                return PuzzleParser.parse(allLines);
-            }
-            catch (UnableToParseException e) {
-                System.out.println(filepath);
-              throw new IllegalArgumentException("Unable to parse input");
-            }
+            allLines = Files.readString(Path.of(filepath), UTF_8);
         }
-        catch (IOException e) {
-            throw new IOException("file does not exist");
+        catch (IOException | InvalidPathException e) {
+            throw new IOException("file does not exist", e);
         }
-
-    }
-    
-    /**
-     * Return the dimensions of the smallest rectangle (board) that includes this puzzle
-     * 
-     * @param entryList the list of entries of the puzzle
-     * @return the dimensions of the smallest rectangle containing this puzzle
-     */
-    private synchronized List<Integer> getDims(List<Entry> entryList) {
-        int maxRow = 0;
-        int maxCol = 0;
-        for (Entry entry: entryList) {
-            if (entry.getDirection() == Direction.ACROSS) {
-                if (entry.getRow() > maxRow) {
-                    maxRow = entry.getRow() + 1;
-                }
-                if (entry.getCol() + entry.getWord().length() > maxCol) {
-                    maxCol = entry.getCol() + entry.getWord().length();
-                }
-            }
-            else {
-                if (entry.getRow() + entry.getWord().length() > maxRow) {
-                    maxRow = entry.getRow() + entry.getWord().length();
-                }
-                if (entry.getCol() > maxCol) {
-                    maxCol = entry.getCol() + 1;
-                }
-            }
+        try {
+            return PuzzleParser.parse(allLines);
         }
-        maxRow = java.lang.Math.max(maxRow, 1);
-        maxCol = java.lang.Math.max(maxCol, 1);
-        return List.of(maxRow, maxCol);
-    }   
+        catch (UnableToParseException e) {
+            System.out.println(filepath);
+            throw new IllegalArgumentException("Unable to parse input", e);
+        }
+    }
     
     /**
      * Make a new puzzle with the specified name, description, and list of entries
      * @param entryList the list of entries
      * @param name the name of the puzzle
      * @param description the description of the puzzle
+     * @throws IllegalArgumentException if the entries are not consistent
      */
     public Puzzle(List<Entry> entryList, String name, String description) {
-        this.name = name;
-        this.description = description;
-        this.entryList = new ArrayList<>();
-        for (Entry entry: entryList) {
-            Entry newEntry = new Entry(entry.getWord(), entry.getHint(), entry.getDirection(), entry.getRow(), entry.getCol());
-            this.entryList.add(newEntry);
-        }
+        this(new PuzzleTemplate(entryList, name, description));
+    }
+    
+    /**
+     * Make a new puzzle without guesses or players on the layout of a template. Making a puzzle this way
+     *   only allocates its guess state, the template is shared and not copied
+     * @param template the layout of the puzzle
+     */
+    public Puzzle(PuzzleTemplate template) {
+        this.template = template;
+        this.entryList = new ArrayList<>(template.getEntryList());
         this.isComplete = false;
-        this.numRows = getDims(entryList).get(0);
-        this.numCols = getDims(entryList).get(1);
-        
         this.players = new HashSet<>();
         
-        this.locationMap = new HashMap<>();
-        this.directionMap = new HashMap<>();
-        for (Entry entry: entryList) {
-            String word = entry.getWord();
-            Direction direction = entry.getDirection();
-            int row = entry.getRow();
-            int col = entry.getCol();
-            this.locationMap.put(word, List.of(row, col));
-            this.directionMap.put(word, direction);
-        }
-        this.boardList = new ArrayList<>();
-        for (Integer i = 0; i < numRows*numCols; i++) {
-            this.boardList.add("");
-        }
-        for (Entry entry: entryList) {
-            int row = entry.getRow();
-            int col = entry.getCol();
-            String word = entry.getWord();
-            if (this.directionMap.get(word) == Direction.DOWN) {
-                for (Integer i = 0; i < word.length(); i++) {
-                    int index = ((row+i)*this.numCols)+col;
-                    this.boardList.set(index, ""+word.charAt(i));
-                }
-            }
-            else {
-                for (Integer i = 0; i < word.length(); i++) {
-                    int index = (row*this.numCols)+col+i;
-                    this.boardList.set(index, ""+word.charAt(i));
-                }
+        this.guessGrid = new char[template.getNumCells()];
+        for (int cell = 0; cell < this.guessGrid.length; cell++) {
+            if (template.getNumCellEntries(cell) > 0) {
+                this.guessGrid[cell] = '*';
             }
         }
+        
+        this.clientEntryStrings = template.getBlankClientEntryStrings();
+        this.clientString = template.getBlankClientString();
+        this.version = 0;
+        this.entryVersions = new long[this.entryList.size()];
+        this.playersVersion = 0;
         checkRep();
     }
     
-    /**
-     * Check if two entries of the puzzle overlap in an invalid way
-     * 
-     * @param entry1 the first entry
-     * @param entry2 the second entry
-     * @return true if the two entries share more than one common cells on the puzzle grid, false otherwise
-     */
-    private synchronized boolean overlapping(Entry entry1, Entry entry2) {
-        Set<List<Integer>> entry1Coords = new HashSet<>();
-        Set<List<Integer>> entry2Coords = new HashSet<>();
-        if (entry1.getDirection().equals(Direction.DOWN)) {
-            for (Integer i = 0; i < entry1.getWord().length(); i++) {
-                entry1Coords.add(List.of(entry1.getRow() + i, entry1.getCol()));
-            }
+    // runs on every client string and comparison, so it can be turned off with RepChecks; the words themselves are validated once by template
+    private void checkRep() {
+        if (!RepChecks.hotChecksEnabled()) {
+            return;
         }
-        else {
-            for (Integer i = 0; i < entry1.getWord().length(); i++) {
-                entry1Coords.add(List.of(entry1.getRow(), entry1.getCol() + i));
+        assert this.entryList.size() == this.template.getEntryList().size();
+        assert this.clientEntryStrings.length == this.entryList.size();
+        assert this.guessGrid.length == this.template.getNumCells();
+        assert this.nextChange == null || !this.nextChange.isDone();
+        for (Entry entry: this.entryList) {
+            for (int i = 0; i < entry.getWord().length(); i++) {
+                assert this.guessGrid[this.template.cellIndex(entry, i)] == entry.getGuess().charAt(i);
             }
         }
-        if (entry2.getDirection().equals(Direction.DOWN)) {
-            for (Integer i = 0; i < entry2.getWord().length(); i++) {
-                entry2Coords.add(List.of(entry2.getRow() + i, entry2.getCol()));
-            }
-        } 
-        else {
-            for (Integer i = 0; i < entry2.getWord().length(); i++) {
-                entry2Coords.add(List.of(entry2.getRow(), entry2.getCol() + i));
-            }
+    }
+    
+    /**
+     * @return the immutable layout of this puzzle, which new games on the same puzzle can share
+     */
+    public PuzzleTemplate getTemplate() {
+        return this.template;
+    }
+    
+    /**
+     * Replace the entry numbered index, keeping its line of the client string up to date
+     *   and stamping it with the version the pending change will get (see changed())
+     * @param index the index of the entry in entryList
+     * @param entry the new entry, must differ from the old one only in its guess
+     */
+    private void setEntry(int index, Entry entry) {
+        this.entryList.set(index, entry);
+        this.clientEntryStrings[index] = PuzzleTemplate.makeClientEntryString(index, entry);
+        this.clientString = null;
+        this.entryVersions[index] = this.version + 1;
+    }
+    
+    /**
+     * Rebuild the guess of the entry numbered index from the cells of guessGrid it passes through
+     * @param index the index of the entry in entryList
+     */
+    private void refreshGuess(int index) {
+        Entry entry = this.entryList.get(index);
+        char[] guess = new char[entry.getWord().length()];
+        for (int i = 0; i < guess.length; i++) {
+            guess[i] = this.guessGrid[this.template.cellIndex(entry, i)];
+        }
+        String newGuess = new String(guess);
+        if (newGuess.equals(entry.getGuess())) {
+            return;
         }
-        entry1Coords.retainAll(entry2Coords);
-        return (entry1Coords.size() > 1);
+        setEntry(index, new Entry(entry.getWord(), entry.getHint(), entry.getDirection(), entry.getRow(), entry.getCol(), newGuess));
     }
     
-    private void checkRep() {
-        for (Entry entry1: this.entryList) {
-            for (Entry entry2: this.entryList) {
-                if (!entry1.equals(entry2)) {
-                    assert !overlapping(entry1, entry2);
-                }
-            }
+    /**
+     * Set a single letter of the guess of the entry numbered index
+     * @param index the index of the entry in entryList
+     * @param offset the position of the letter within the entry's guess
+     * @param letter the new letter
+     */
+    private void patchGuess(int index, int offset, char letter) {
+        Entry entry = this.entryList.get(index);
+        if (entry.getGuess().charAt(offset) == letter) {
+            return;
         }
-        Map<String, String> letterMap = new HashMap<>();
-        List<String> wordList = new ArrayList<>();
-        for (Entry entry: this.entryList) {
-            String location = "" + entry.getRow() + entry.getCol();
-            String word = entry.getWord();
-            wordList.add(word);
-            if (this.directionMap.get(word) == Direction.DOWN ) {
-                for (Integer i = 0; i < word.length(); i++) {
-                    int row = entry.getRow() + i;
-                    location = "" + row + "," + entry.getCol();
-                    if (!letterMap.containsKey(location)) {
-                        letterMap.put(location, ""+word.charAt(i));
-                    }
-                    assert (letterMap.get(location).equals(""+word.charAt(i)));
-                }
+        char[] guess = entry.getGuess().toCharArray();
+        guess[offset] = letter;
+        setEntry(index, new Entry(entry.getWord(), entry.getHint(), entry.getDirection(), entry.getRow(), entry.getCol(), new String(guess)));
+    }
+    
+    /**
+     * Writes letters into the cells of the entry numbered index, updating the guess of that entry 
+     * and of every entry crossing it
+     * @param index the index of the entry in entryList
+     * @param letters the letters to write, one per cell of the entry
+     * @return true if any cell of the board changed, false otherwise
+     */
+    private boolean writeEntry(int index, String letters) {
+        Entry entry = this.entryList.get(index);
+        boolean changed = false;
+        for (int i = 0; i < letters.length(); i++) {
+            int cell = this.template.cellIndex(entry, i);
+            char letter = letters.charAt(i);
+            if (this.guessGrid[cell] == letter) {
+                continue;
             }
-            else {
-                for (Integer i = 0; i < word.length(); i++) {
-                    int col = entry.getCol() + i;
-                    location = "" + entry.getRow() + "," + col;
-                    if (!letterMap.containsKey(location)) {
-                        letterMap.put(location, ""+word.charAt(i));
-                    }
-                    assert (letterMap.get(location).equals(""+word.charAt(i)));
+            changed = true;
+            this.guessGrid[cell] = letter;
+            for (int k = 0; k < this.template.getNumCellEntries(cell); k++) {
+                if (this.template.getCellEntry(cell, k) != index) {
+                    patchGuess(this.template.getCellEntry(cell, k), this.template.getCellOffset(cell, k), letter);
                 }
             }
         }
-        Set<String> wordSet = new HashSet<>();
-        for (String word: wordList) {
-            wordSet.add(word);
-        }
-        assert (wordList.size() == wordSet.size());
-    }
-    
-    /**
-     * Overwrites every guess in the puzzle entryList that passes through cell (row, col) to have value letter
-     * @param row Integer representing row index of the cell we are overwriting
-     * @param col Integer representing column index of the cell we are overwriting
-     * @param letter Character value we are overwriting to the cell
-     */
-    private synchronized void overwrite(int row, int col, char letter) {
-        for (Integer index = 0; index < this.entryList.size(); index ++) {
-            Entry entry = this.entryList.get(index);
-            String word = entry.getGuess();
-            if (entry.getDirection() == Direction.DOWN) {
-                int c = entry.getCol();
-                for (Integer i = 0; i < word.length(); i++) {
-                    int r = entry.getRow() + i;
-                    if (row == r && col == c) {
-                        StringBuilder newWord = new StringBuilder(entry.getGuess());
-                        newWord.setCharAt(i, letter);
-                        String newWordString = newWord.toString();
-                        Entry newEntry = new Entry(entry.getWord(), entry.getHint(), entry.getDirection(), entry.getRow(), entry.getCol(), newWordString);
-                        this.entryList.set(index,  newEntry);
-                    }
-                }
-            }
-            else {
-                int r = entry.getRow();
-                for (Integer i = 0; i < word.length(); i++) {
-                    int c = entry.getCol() + i;
-                    if (row == r && col == c) {
-                        StringBuilder newWord = new StringBuilder(entry.getGuess());
-                        newWord.setCharAt(i, letter);
-                        String newWordString = newWord.toString();
-                        Entry newEntry = new Entry(entry.getWord(), entry.getHint(), entry.getDirection(), entry.getRow(), entry.getCol(), newWordString);
-                        this.entryList.set(index,  newEntry);
-                    }
-                }
-            }
+        refreshGuess(index);
+        return changed;
+    }
+    
+    /**
+     * Writes a letter into a single cell, updating the guess of every entry passing through it
+     * @param cell the index of a cell some entry passes through
+     * @param letter the letter to write
+     * @return true if the cell changed, false otherwise
+     */
+    private boolean writeCell(int cell, char letter) {
+        if (this.guessGrid[cell] == letter) {
+            return false;
+        }
+        this.guessGrid[cell] = letter;
+        for (int k = 0; k < this.template.getNumCellEntries(cell); k++) {
+            patchGuess(this.template.getCellEntry(cell, k), this.template.getCellOffset(cell, k), letter);
+        }
+        return true;
+    }
+    
+    /**
+     * @param row row of a cell
+     * @param col column of a cell
+     * @return the index of the cell at row, col
+     * @throws IllegalArgumentException if row, col is not on the board, or no entry passes through it
+     */
+    private int entryCell(int row, int col) throws IllegalArgumentException {
+        if (! (0 <= row && row < this.template.getNumRows() && 0 <= col && col < this.template.getNumCols())) {
+            throw new IllegalArgumentException("not a cell of the board: " + row + ", " + col);
+        }
+        final int cell = row * this.template.getNumCols() + col;
+        if (this.template.getNumCellEntries(cell) == 0) {
+            throw new IllegalArgumentException("no entry passes through cell " + row + ", " + col);
+        }
+        return cell;
+    }
+    
+    /**
+     * Record a change to the state of this puzzle by bumping its version, and wake up the threads waiting for a change
+     */
+    private void changed() {
+        this.version++;
+        if (this.nextChange != null) {
+            final CompletableFuture<Long> change = this.nextChange;
+            this.nextChange = null;
+            change.complete(this.version);
         }
     }
     
@@ -303,7 +300,8 @@ public class Puzzle {
     public synchronized void addPlayer(String playerID) {
         if (!players.contains(playerID)) {
             players.add(playerID);
-            this.notifyAll();
+            this.playersVersion = this.version + 1;
+            changed();
         }
 //        System.out.println("Puzzle: just added player " + playerID + ", players: " +  this.getPlayers());
     }
@@ -315,7 +313,8 @@ public class Puzzle {
     public synchronized void removePlayer(String playerID) {
         if (players.contains(playerID)) {
             players.remove((playerID));
-            this.notifyAll();
+            this.playersVersion = this.version + 1;
+            changed();
         }
 //        System.out.println("Puzzle: just removed player " + playerID + ", players: " +  this.getPlayers());
     }
@@ -325,27 +324,81 @@ public class Puzzle {
      * Create a minimal string representation of this puzzle to be passed from the server to any client
      *   This is a minimal representation of the puzzle, i.e. without giving away the answers/actual words of the puzzle
      *   This string representation follows the rules of the grammar MinimalPuzzle.g 
+     *   The string is cached between mutations, and each guess only re-serializes the entries it changed
      *   
      * @return the minimal string representation of this puzzle
      */
     public synchronized String makeClientString() {
         checkRep();
-        String clientString = ">> ";
-        clientString += "\"" + this.name + "\" " + "\"" + this.description + "\"" + "\n\n";
-        for (Integer i = 0; i < this.entryList.size(); i++) {
-            Entry entry = this.entryList.get(i);
-            String entryString = "(";
-            entryString += i + ", ";
-            entryString += "\"" + entry.getHint() + "\"" + ", ";
-            entryString += entry.getDirection() + ", ";
-            entryString += entry.getRow() +", ";
-            entryString += entry.getCol() + ", ";
-            entryString += entry.getWord().length() + ", ";
-            String guess = entry.getGuess();
-            entryString += "\"" + guess + "\"" + ")\n";
-            clientString += entryString;
+        if (this.clientString == null) {
+            int length = 0;
+            for (String entryString : this.clientEntryStrings) {
+                length += entryString.length() + 1;
+            }
+            this.clientString = PuzzleTemplate.makeClientString(this.template.getName(), this.template.getDescription(), this.clientEntryStrings, length);
+        }
+        return this.clientString;
+    }
+    
+    
+    /**
+     * Create a string describing how the guesses of this puzzle changed since an earlier version, to be passed from the server to a client
+     *   that already holds the minimal client string of that version. It lists only the current guess of each entry whose guess changed
+     *   after version, following the grammar:
+     *   
+     *   DELTA ::= "~~" VERSION ENTRYGUESS*;
+     *   ENTRYGUESS ::= "(" INDEX "," GUESS ")";
+     *   GUESS ::= '"' String '"';
+     *   
+     *   where VERSION is the version the delta applies to, and rules not given here are as in MinimalPuzzle.g
+     *   
+     * @param version the version of the client's copy of this puzzle, must be 0 <= version <= getVersion()
+     * @return the delta string from version to the current state of this puzzle
+     * @throws IllegalArgumentException if version is not a valid version of this puzzle
+     */
+    public synchronized String makeClientDeltaString(long version) throws IllegalArgumentException {
+        if (version < 0 || version > this.version) {
+            throw new IllegalArgumentException("not a version of this puzzle: " + version);
         }
-        return clientString.substring(0, clientString.length() - 1);
+        StringBuilder builder = new StringBuilder("~~ ").append(version);
+        for (int index = 0; index < this.entryList.size(); index++) {
+            if (this.entryVersions[index] > version) {
+                builder.append("\n(").append(index).append(", \"").append(this.entryList.get(index).getGuess()).append("\")");
+            }
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Create a delta string, following the grammar of makeClientDeltaString(), listing the current guesses of the entries passing 
+     *   through a single cell. It describes every change after version if the only change since then was to that cell, 
+     *   e.g. by setCell() or clearCell(), and is made without looking at any other entry
+     * @param row row of the cell, must be 0 <= row <= getNumRows() - 1
+     * @param col column of the cell, must be 0 <= col <= getNumCols() - 1
+     * @param version the version before the change to the cell, must be 0 <= version <= getVersion()
+     * @return the delta string of the entries passing through the cell, from version
+     * @throws IllegalArgumentException if no entry passes through the cell, or version is not a valid version of this puzzle
+     */
+    public synchronized String makeClientCellDeltaString(int row, int col, long version) throws IllegalArgumentException {
+        final int cell = entryCell(row, col);
+        if (version < 0 || version > this.version) {
+            throw new IllegalArgumentException("not a version of this puzzle: " + version);
+        }
+        StringBuilder builder = new StringBuilder("~~ ").append(version);
+        // the entries of a cell are in order of index, like in makeClientDeltaString()
+        for (int k = 0; k < this.template.getNumCellEntries(cell); k++) {
+            final int index = this.template.getCellEntry(cell, k);
+            builder.append("\n(").append(index).append(", \"").append(this.entryList.get(index).getGuess()).append("\")");
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * @param version a version of this puzzle's state
+     * @return true if the set of players of this puzzle changed after version, false otherwise
+     */
+    public synchronized boolean playersChangedAfter(long version) {
+        return this.playersVersion > version;
     }
     
     
@@ -363,23 +416,9 @@ public class Puzzle {
         if (guess.length() != entryList.get(index).getWord().length()) {
             throw new IllegalArgumentException();
         }
-        Entry entry = entryList.get(index);
-        Entry newEntry = new Entry(entry.getWord(), entry.getHint(), entry.getDirection(), entry.getRow(), entry.getCol(), guess);
-        entryList.set(index, newEntry);
-        for (Integer i = 0; i < guess.length(); i++) {
-            char letter = guess.charAt(i);
-            if (entry.getDirection() == Direction.DOWN) {
-                int col = entry.getCol();
-                int row = entry.getRow() + i;
-                overwrite(row, col, letter);
-            }
-            else {
-                int row = entry.getRow();
-                int col = entry.getCol() + i;
-                overwrite(row, col, letter);
-            }
+        if (writeEntry(index, guess)) {
+            changed();
         }
-        this.notifyAll();
     }
     
     /**
@@ -392,22 +431,65 @@ public class Puzzle {
         if (! (0 <= index && index <= entryList.size() - 1)) {
             throw new IllegalArgumentException();
         }
-        Entry entry = entryList.get(index);
-        Entry newEntry = new Entry(entry.getWord(), entry.getHint(), entry.getDirection(), entry.getRow(), entry.getCol(), "*".repeat(entry.getWord().length()));
-        entryList.set(index, newEntry);
-        for (Integer i = 0; i < entry.getWord().length(); i++) {
-            if (entry.getDirection() == Direction.DOWN) {
-                int col = entry.getCol();
-                int row = entry.getRow() + i;
-                overwrite(row, col, '*');
+        if (writeEntry(index, "*".repeat(entryList.get(index).getWord().length()))) {
+            changed();
+        }
+    }
+    
+    /**
+     * Apply a batch of guesses and erases to the puzzle at once, in order, as if guessWord() or eraseWord() were called for each one,
+     * except that the version of the puzzle increases only once for the whole batch and waiting threads are woken up once.
+     * Either every operation is applied or, if any of them is not valid, none is
+     * @param guesses the operations to apply, in order; each index must be 0 <= index <= getEntryList.size() - 1
+     *                and each guessed word must have the same length as the actual word
+     * @throws IllegalArgumentException if any index or length of a guess is not valid, in which case the puzzle is unchanged
+     */
+    public synchronized void applyGuesses(List<EntryGuess> guesses) throws IllegalArgumentException {
+        for (EntryGuess guess : guesses) {
+            if (! (0 <= guess.getIndex() && guess.getIndex() <= entryList.size() - 1)) {
+                throw new IllegalArgumentException("not a valid index: " + guess);
             }
-            else {
-                int row = entry.getRow();
-                int col = entry.getCol() + i;
-                overwrite(row, col, '*');
+            if (guess.getGuess().isPresent() && guess.getGuess().get().length() != entryList.get(guess.getIndex()).getWord().length()) {
+                throw new IllegalArgumentException("not a valid length: " + guess);
             }
         }
-        this.notifyAll();
+        boolean changed = false;
+        for (EntryGuess guess : guesses) {
+            final String letters = guess.getGuess().orElse("*".repeat(entryList.get(guess.getIndex()).getWord().length()));
+            changed = writeEntry(guess.getIndex(), letters) || changed;
+        }
+        if (changed) {
+            changed();
+        }
+    }
+
+    /**
+     * Guess the letter of a single cell of the board, changing only the guesses of the (at most two) entries passing through it
+     * @param row row of the cell, must be 0 <= row <= getNumRows() - 1
+     * @param col column of the cell, must be 0 <= col <= getNumCols() - 1
+     * @param letter the guessed letter, must be a letter
+     * @throws IllegalArgumentException if no entry passes through the cell or letter is not a letter
+     */
+    public synchronized void setCell(int row, int col, char letter) throws IllegalArgumentException {
+        final int cell = entryCell(row, col);
+        if (!Character.isLetter(letter)) {
+            throw new IllegalArgumentException("not a letter: " + letter);
+        }
+        if (writeCell(cell, letter)) {
+            changed();
+        }
+    }
+    
+    /**
+     * Erase the guessed letter of a single cell of the board, changing only the guesses of the (at most two) entries passing through it
+     * @param row row of the cell, must be 0 <= row <= getNumRows() - 1
+     * @param col column of the cell, must be 0 <= col <= getNumCols() - 1
+     * @throws IllegalArgumentException if no entry passes through the cell
+     */
+    public synchronized void clearCell(int row, int col) throws IllegalArgumentException {
+        if (writeCell(entryCell(row, col), '*')) {
+            changed();
+        }
     }
     
     /**
@@ -417,38 +499,65 @@ public class Puzzle {
     public synchronized void check() {
 
         boolean isComplete = true;
-        for (Integer index = 0; index < this.entryList.size(); index ++) {
-            Entry entry = this.entryList.get(index);
-            String checkedWord = "";
-            String word = entry.getWord();
-            String guess = entry.getGuess();
-            for (Integer i = 0; i < word.length(); i++) {
-                if (word.charAt(i) == guess.charAt(i)) {
-                    checkedWord += word.charAt(i);
-                }
-                else {
-                    checkedWord += "*";
-                    isComplete = false;
-                }
-            }
-            Entry updatedEntry = new Entry(entry.getWord(), entry.getHint(), entry.getDirection(), entry.getRow(), entry.getCol(), checkedWord);
-            for (Integer i = 0; i < checkedWord.length(); i++) {
-                char letter = checkedWord.charAt(i);
-                if (entry.getDirection() == Direction.DOWN) {
-                    int col = entry.getCol();
-                    int row = entry.getRow() + i;
-                    overwrite(row, col, letter);
-                }
-                else {
-                    int row = entry.getRow();
-                    int col = entry.getCol() + i;
-                    overwrite(row, col, letter);
+        boolean changed = false;
+        for (int cell = 0; cell < this.guessGrid.length; cell++) {
+            if (this.template.getNumCellEntries(cell) > 0 && this.guessGrid[cell] != this.template.getSolution(cell)) {
+                changed = changed || this.guessGrid[cell] != '*';
+                this.guessGrid[cell] = '*';
+                for (int k = 0; k < this.template.getNumCellEntries(cell); k++) {
+                    patchGuess(this.template.getCellEntry(cell, k), this.template.getCellOffset(cell, k), '*');
                 }
+                isComplete = false;
             }
-            this.entryList.set(index, updatedEntry);
+        }
+        if (!this.entryList.isEmpty() && this.isComplete != isComplete) {
             this.isComplete = isComplete;
+            changed = true;
+        }
+        if (changed) {
+            changed();
+        }
+    }
+    
+    /**
+     * Get the version of the state of this puzzle. The version increases by at least one every time a guess, erase or check 
+     * changes the board or completion state, and every time a player is added or removed; it never decreases.
+     * @return the current version of this puzzle's state
+     */
+    public synchronized long getVersion() {
+        return this.version;
+    }
+    
+    /**
+     * Block until the version of this puzzle's state is greater than version. The thread waits without holding the lock of this puzzle
+     * @param version a version previously obtained from getVersion()
+     * @return the current version, which is greater than version
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public long awaitVersionAfter(long version) throws InterruptedException {
+        try {
+            versionAfter(version).get();
+        } catch (ExecutionException e) {
+            throw new AssertionError("a change is never completed exceptionally", e);
+        }
+        return getVersion();
+    }
+    
+    /**
+     * Get a future that is completed when the version of this puzzle's state is greater than version, so that a change can be
+     *   waited for without blocking a thread. Actions attached to the future with its non-async methods may run on the thread
+     *   that changes the puzzle, while it holds the lock of this puzzle, so they must be short and must not block
+     * @param version a version previously obtained from getVersion()
+     * @return a future completed with a version of this puzzle greater than version, already completed if the current version is
+     */
+    public synchronized CompletableFuture<Long> versionAfter(long version) {
+        if (this.version > version) {
+            return CompletableFuture.completedFuture(this.version);
+        }
+        if (this.nextChange == null) {
+            this.nextChange = new CompletableFuture<>();
         }
-        this.notifyAll();
+        return this.nextChange.copy();
     }
     
     /**
@@ -476,28 +585,28 @@ public class Puzzle {
      * @return the name of this puzzle
      */
     public synchronized String getName() {
-        return this.name;
+        return this.template.getName();
     }
     
     /**
      * @return the description of this puzzle
      */
     public synchronized String getDescription() {
-        return this.description;
+        return this.template.getDescription();
     }
     
     /**
      * @return the number of rows of this puzzle's board - see getDims spec
      */
     public synchronized int getNumRows() {
-        return this.numRows;
+        return this.template.getNumRows();
     }
     
     /**
      * @return the number of columns of this puzzle's board - see getDims spec
      */
     public synchronized int getNumCols() {
-        return this.numCols;
+        return this.template.getNumCols();
     }
     
     @Override
@@ -516,19 +625,19 @@ public class Puzzle {
             }
         }
         return that instanceof Puzzle && equalEntries &&
-                this.name.equals(((Puzzle) that).getName()) &&
-                this.description.equals(((Puzzle) that).getDescription());
+                getName().equals(((Puzzle) that).getName()) &&
+                getDescription().equals(((Puzzle) that).getDescription());
                 
     }
     
     @Override
     public synchronized int hashCode() {
-        return this.entryList.size() + this.name.length() + this.description.length() + this.numRows + this.numCols;
+        return this.template.hashCode();
     }
     
     @Override
     public synchronized String toString() {
-        String puzzleString = ">> " + "\"" + this.name + "\"" + " " + "\"" + this.description + "\"" + "\n\n";
+        String puzzleString = ">> " + "\"" + getName() + "\"" + " " + "\"" + getDescription() + "\"" + "\n\n";
         for (Entry entry: this.entryList) {
             puzzleString += entry.toString() + "\n";
         }
@@ -0,0 +1,208 @@
+package crossword;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A mutable, thread-safe catalog of the puzzles a server offers, giving the PuzzleTemplate that new games of each puzzle are made from.
+ * An eager catalog holds a template for every puzzle. A lazy catalog only knows how to load each puzzle (e.g. by parsing its file), 
+ * loads a puzzle the first time its template is needed, and keeps the templates it loaded in a least-recently-used cache 
+ * bounded by their total number of cells.
+ *
+ */
+public class PuzzleCatalog {
+    
+    /**
+     * Loads the template of a puzzle for a lazy catalog. Must be threadsafe.
+     */
+    interface Loader {
+        
+        /**
+         * @param puzzleName name of a puzzle of the catalog
+         * @return the template of puzzleName
+         * @throws IOException if the puzzle cannot be read
+         * @throws IllegalArgumentException if the puzzle is not valid
+         */
+        PuzzleTemplate load(String puzzleName) throws IOException;
+    }
+
+    // Abstraction Function
+    // AF(puzzleNames, loader, pinned, cache, maxCachedCells, cachedCells) -> a catalog of the puzzles named by puzzleNames,
+    //   where the puzzle named name is pinned.get(name) if it is pinned, and is otherwise loader.load(name).
+    //   cache holds the templates loaded so far that have not been evicted, least recently used first, and cachedCells 
+    //   is their total number of cells.
+    //
+    // Representation Invariant
+    // - pinned.keySet() and cache.keySet() are subsets of puzzleNames, and do not intersect
+    // - cachedCells == sum of cache.get(name).getNumCells() over every name in cache
+    // - maxCachedCells >= 0, and cachedCells <= maxCachedCells unless cache holds a single template
+    //
+    // Safety from rep exposure
+    // - all fields private, and final except cachedCells which is a primitive
+    // - puzzleNames and pinned are unmodifiable copies made in the constructor
+    // - getPuzzleNames() returns the unmodifiable puzzleNames
+    // - PuzzleTemplate is immutable, so the templates can be shared with clients
+    //
+    // Thread safety argument
+    // - puzzleNames and pinned are never mutated, so they can be read from any thread, and loader is threadsafe
+    // - cache and cachedCells are only accessed in methods synchronized on this catalog (monitor pattern)
+    // - puzzles are loaded without holding the lock, so a slow load does not block games of other puzzles; if two threads load
+    //   the same puzzle at once, the first template put into cache wins and both threads return it
+
+    private final Set<String> puzzleNames;
+    private final Loader loader;
+    private final Map<String, PuzzleTemplate> pinned;
+    private final LinkedHashMap<String, PuzzleTemplate> cache;
+    private final long maxCachedCells;
+    private long cachedCells;
+
+    /**
+     * Make a catalog holding the template of every puzzle in puzzleNameToPuzzle
+     *
+     * @param puzzleNameToPuzzle maps the names of puzzles to parsed puzzles
+     * @return an eager catalog of the puzzles in puzzleNameToPuzzle
+     */
+    public static PuzzleCatalog eager(Map<String, Puzzle> puzzleNameToPuzzle) {
+        final Map<String, PuzzleTemplate> templates = new HashMap<>();
+        for (String puzzleName : puzzleNameToPuzzle.keySet()) {
+            templates.put(puzzleName, puzzleNameToPuzzle.get(puzzleName).getTemplate());
+        }
+        return new PuzzleCatalog(templates.keySet(), puzzleName -> {
+            throw new AssertionError("every puzzle is pinned");
+        }, templates, 0);
+    }
+
+    /**
+     * Make a catalog that parses each puzzle when its template is first needed
+     *
+     * @param puzzleNameToPuzzleDirectory maps the names of puzzles to their file paths
+     * @param maxCachedCells the total number of cells of the parsed templates kept in memory, must be >= 0.
+     *                       The least recently used templates are dropped to stay under it, except the last one used
+     * @return a lazy catalog of the puzzles in puzzleNameToPuzzleDirectory
+     */
+    public static PuzzleCatalog lazy(Map<String, String> puzzleNameToPuzzleDirectory, long maxCachedCells) {
+        final Map<String, String> directories = Map.copyOf(puzzleNameToPuzzleDirectory);
+        return lazy(directories.keySet(), puzzleName -> Puzzle.parseFromFile(directories.get(puzzleName)).getTemplate(), maxCachedCells);
+    }
+
+    /**
+     * Make a catalog that loads each puzzle when its template is first needed
+     *
+     * @param puzzleNames the names of the puzzles of the catalog
+     * @param loader loads the template of each puzzle in puzzleNames
+     * @param maxCachedCells the total number of cells of the loaded templates kept in memory, as in lazy(Map, long)
+     * @return a lazy catalog of the puzzles in puzzleNames
+     */
+    static PuzzleCatalog lazy(Set<String> puzzleNames, Loader loader, long maxCachedCells) {
+        return new PuzzleCatalog(puzzleNames, loader, Map.of(), maxCachedCells);
+    }
+
+    private PuzzleCatalog(Set<String> puzzleNames, Loader loader, Map<String, PuzzleTemplate> pinned, long maxCachedCells) {
+        if (maxCachedCells < 0) {
+            throw new IllegalArgumentException("cache size must be >= 0: " + maxCachedCells);
+        }
+        this.puzzleNames = Set.copyOf(puzzleNames);
+        this.loader = loader;
+        this.pinned = Collections.unmodifiableMap(new HashMap<>(pinned));
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxCachedCells = maxCachedCells;
+        this.cachedCells = 0;
+        checkRep();
+    }
+
+    private synchronized void checkRep() {
+        assert this.puzzleNames.containsAll(this.pinned.keySet());
+        assert this.puzzleNames.containsAll(this.cache.keySet());
+        assert Collections.disjoint(this.pinned.keySet(), this.cache.keySet());
+        long cells = 0;
+        for (PuzzleTemplate template : this.cache.values()) {
+            cells += template.getNumCells();
+        }
+        assert cells == this.cachedCells;
+        assert this.cachedCells <= this.maxCachedCells || this.cache.size() == 1;
+    }
+
+    /**
+     * @return the names of all puzzles in this catalog
+     */
+    public Set<String> getPuzzleNames() {
+        return this.puzzleNames;
+    }
+
+    /**
+     * Get the template of a puzzle, loading it if it is not in memory
+     *
+     * @param puzzleName name of a puzzle
+     * @return the template of the puzzle named puzzleName, or empty if there is no such puzzle in this catalog,
+     *         or it cannot be read or is not a valid puzzle
+     */
+    public Optional<PuzzleTemplate> getTemplate(String puzzleName) {
+        if (this.pinned.containsKey(puzzleName)) {
+            return Optional.of(this.pinned.get(puzzleName));
+        }
+        if (!this.puzzleNames.contains(puzzleName)) {
+            return Optional.empty();
+        }
+        final Optional<PuzzleTemplate> cached = getCachedTemplate(puzzleName);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        final PuzzleTemplate template;
+        try {
+            template = this.loader.load(puzzleName);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+        return Optional.of(putCachedTemplate(puzzleName, template));
+    }
+
+    /**
+     * @return the number of templates this catalog has loaded and not evicted
+     */
+    public synchronized int getCachedTemplateCount() {
+        return this.cache.size();
+    }
+
+    /**
+     * Look up a loaded template, marking it as the most recently used
+     *
+     * @param puzzleName name of a puzzle
+     * @return the cached template of puzzleName, or empty if it is not cached
+     */
+    private synchronized Optional<PuzzleTemplate> getCachedTemplate(String puzzleName) {
+        return Optional.ofNullable(this.cache.get(puzzleName));
+    }
+
+    /**
+     * Add a loaded template to the cache as the most recently used, evicting the least recently used templates to stay within maxCachedCells
+     *
+     * @param puzzleName name of a puzzle
+     * @param template the template loaded for puzzleName
+     * @return the template now cached for puzzleName: template, or the one another thread cached first
+     */
+    private synchronized PuzzleTemplate putCachedTemplate(String puzzleName, PuzzleTemplate template) {
+        final PuzzleTemplate existing = this.cache.get(puzzleName);
+        if (existing != null) {
+            return existing;
+        }
+        this.cache.put(puzzleName, template);
+        this.cachedCells += template.getNumCells();
+
+        final Iterator<Map.Entry<String, PuzzleTemplate>> leastRecentlyUsed = this.cache.entrySet().iterator();
+        while (this.cachedCells > this.maxCachedCells && this.cache.size() > 1) {
+            final PuzzleTemplate evicted = leastRecentlyUsed.next().getValue();
+            leastRecentlyUsed.remove();
+            this.cachedCells -= evicted.getNumCells();
+        }
+        checkRep();
+        return template;
+    }
+}
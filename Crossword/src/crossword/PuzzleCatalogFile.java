@@ -0,0 +1,254 @@
+package crossword;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiles puzzles into a single binary catalog file, and opens such files as lazy PuzzleCatalogs.
+ * Loading a puzzle from a catalog file only decodes its record from the memory-mapped file, without running the Puzzle.g grammar.
+ *
+ * <p> A catalog file is a sequence of big-endian ints and bytes:
+ * <pre>
+ * FILE ::= MAGIC FORMAT_VERSION STRING_COUNT PUZZLE_COUNT STRING_OFFSET* PUZZLE_INDEX* STRING* PUZZLE*
+ * PUZZLE_INDEX ::= NAME_STRING PUZZLE_OFFSET
+ * STRING ::= BYTE_LENGTH UTF8_BYTE*
+ * PUZZLE ::= NAME_STRING DESCRIPTION_STRING ENTRY_COUNT ENTRY*
+ * ENTRY ::= WORD_STRING HINT_STRING DIRECTION_BYTE ROW COL
+ * </pre>
+ * where every *_STRING is an index into the string table (a string used more than once is stored once), STRING_OFFSET
+ * and PUZZLE_OFFSET are positions in the file, and DIRECTION_BYTE is the ordinal of a Direction.
+ * The length of each entry is the length of its word, which is also its solution.
+ *
+ * <p> Command-line usage:
+ * <pre> java crossword.PuzzleCatalogFile PUZZLE_FOLDER CATALOG_FILE </pre>
+ * compiles every valid .puzzle file in PUZZLE_FOLDER into CATALOG_FILE.
+ */
+public class PuzzleCatalogFile {
+
+    private static final int MAGIC = 0x43574350; // "CWCP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    /**
+     * Compile a folder of puzzle files into a catalog file.
+     *
+     * @param args the folder where the puzzles are located, and the catalog file to write
+     * @throws IOException if the catalog file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("usage: PUZZLE_FOLDER CATALOG_FILE");
+        }
+        final File[] files = new File(args[0]).listFiles((dir, name) -> name.endsWith(".puzzle"));
+        if (files == null) {
+            throw new IOException("not a folder: " + args[0]);
+        }
+        final Map<String, PuzzleTemplate> templates = new TreeMap<>();
+        for (File file : files) {
+            final String fileName = Utilities.getFileNameWithoutExtension(file.getName());
+            try {
+                templates.put(fileName, Puzzle.parseFromFile(file.getPath()).getTemplate());
+            } catch (IOException | IllegalArgumentException e) {
+                e.printStackTrace();
+            }
+        }
+        write(templates, Path.of(args[1]));
+        System.err.println("Compiled " + templates.size() + " of " + files.length + " puzzles into " + args[1]);
+    }
+
+    /**
+     * Write puzzles to a catalog file, replacing the file if it exists.
+     *
+     * @param puzzleNameToTemplate maps the names of the puzzles to write to their templates
+     * @param file the catalog file
+     * @throws IOException if the file cannot be written, or if the puzzles need a file of more than Integer.MAX_VALUE bytes,
+     *                     the most that open() can map; nothing is written in that case
+     */
+    public static void write(Map<String, PuzzleTemplate> puzzleNameToTemplate, Path file) throws IOException {
+        // intern every string, in order of first use
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+        final List<String> puzzleNames = new ArrayList<>(puzzleNameToTemplate.keySet());
+        for (String puzzleName : puzzleNames) {
+            final PuzzleTemplate template = puzzleNameToTemplate.get(puzzleName);
+            intern(strings, puzzleName);
+            intern(strings, template.getName());
+            intern(strings, template.getDescription());
+            for (Entry entry : template.getEntryList()) {
+                intern(strings, entry.getWord());
+                intern(strings, entry.getHint());
+            }
+        }
+        final List<byte[]> encodedStrings = new ArrayList<>();
+        for (String string : strings.keySet()) {
+            encodedStrings.add(string.getBytes(UTF_8));
+        }
+
+        // lay out the sections to know every offset before writing, in a long so that a library too large for the format
+        // is rejected instead of writing offsets that wrapped around
+        long offset = HEADER_BYTES + (long) strings.size() * Integer.BYTES + (long) puzzleNames.size() * 2 * Integer.BYTES;
+        final int[] stringOffsets = new int[encodedStrings.size()];
+        for (int i = 0; i < encodedStrings.size(); i++) {
+            stringOffsets[i] = checkOffset(offset, file);
+            offset += Integer.BYTES + encodedStrings.get(i).length;
+        }
+        final int[] puzzleOffsets = new int[puzzleNames.size()];
+        for (int i = 0; i < puzzleNames.size(); i++) {
+            puzzleOffsets[i] = checkOffset(offset, file);
+            offset += 3 * Integer.BYTES + (long) puzzleNameToTemplate.get(puzzleNames.get(i)).getEntryList().size() * (4 * Integer.BYTES + 1);
+        }
+        checkOffset(offset, file);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(strings.size());
+            out.writeInt(puzzleNames.size());
+            for (int stringOffset : stringOffsets) {
+                out.writeInt(stringOffset);
+            }
+            for (int i = 0; i < puzzleNames.size(); i++) {
+                out.writeInt(strings.get(puzzleNames.get(i)));
+                out.writeInt(puzzleOffsets[i]);
+            }
+            for (byte[] encoded : encodedStrings) {
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            for (String puzzleName : puzzleNames) {
+                final PuzzleTemplate template = puzzleNameToTemplate.get(puzzleName);
+                out.writeInt(strings.get(template.getName()));
+                out.writeInt(strings.get(template.getDescription()));
+                out.writeInt(template.getEntryList().size());
+                for (Entry entry : template.getEntryList()) {
+                    out.writeInt(strings.get(entry.getWord()));
+                    out.writeInt(strings.get(entry.getHint()));
+                    out.writeByte(entry.getDirection().ordinal());
+                    out.writeInt(entry.getRow());
+                    out.writeInt(entry.getCol());
+                }
+            }
+            assert out.size() == offset;
+        }
+    }
+
+    /**
+     * @param offset a position in a catalog file being laid out
+     * @param file the catalog file
+     * @return offset, if it fits in the int offsets of the format and in a single MappedByteBuffer
+     * @throws IOException if offset is greater than Integer.MAX_VALUE
+     */
+    private static int checkOffset(long offset, Path file) throws IOException {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("puzzles need more than " + Integer.MAX_VALUE + " bytes, too many for one catalog file: " + file);
+        }
+        return (int) offset;
+    }
+
+    /**
+     * @param strings maps strings to their index in the string table, modified by this method to include string
+     * @param string string to add to the table if it is not already in it
+     */
+    private static void intern(Map<String, Integer> strings, String string) {
+        strings.putIfAbsent(string, strings.size());
+    }
+
+    /**
+     * Open a catalog file as a lazy catalog. The file is memory-mapped, and only its index of puzzle names is read here;
+     * each puzzle is decoded from the mapped file when its template is first needed.
+     *
+     * @param file a catalog file written by write()
+     * @param maxCachedCells the total number of cells of the loaded templates kept in memory, as in PuzzleCatalog.lazy(Map, long)
+     * @return a lazy catalog of the puzzles in file
+     * @throws IOException if the file cannot be read or is not a catalog file
+     */
+    public static PuzzleCatalog open(Path file, long maxCachedCells) throws IOException {
+        final MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        // only absolute reads are used on the buffer, so it can be shared by all threads
+        final ByteBuffer buffer = mapped.asReadOnlyBuffer();
+        try {
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+                throw new IOException("not a puzzle catalog file: " + file);
+            }
+            final int stringCount = buffer.getInt(2 * Integer.BYTES);
+            final int puzzleCount = buffer.getInt(3 * Integer.BYTES);
+            final int indexStart = HEADER_BYTES + stringCount * Integer.BYTES;
+            final Map<String, Integer> puzzleNameToOffset = new HashMap<>();
+            for (int i = 0; i < puzzleCount; i++) {
+                final int position = indexStart + i * 2 * Integer.BYTES;
+                puzzleNameToOffset.put(readString(buffer, buffer.getInt(position)), buffer.getInt(position + Integer.BYTES));
+            }
+            final Map<String, Integer> offsets = Collections.unmodifiableMap(puzzleNameToOffset);
+            return PuzzleCatalog.lazy(offsets.keySet(), puzzleName -> readTemplate(buffer, offsets.get(puzzleName)), maxCachedCells);
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("truncated puzzle catalog file: " + file, e);
+        }
+    }
+
+    /**
+     * Decode a puzzle record of a catalog file
+     *
+     * @param buffer the contents of a catalog file
+     * @param offset the position of a PUZZLE record in buffer
+     * @return the template described by the record
+     * @throws IOException if the record does not fit in buffer
+     */
+    private static PuzzleTemplate readTemplate(ByteBuffer buffer, int offset) throws IOException {
+        try {
+            final String name = readString(buffer, buffer.getInt(offset));
+            final String description = readString(buffer, buffer.getInt(offset + Integer.BYTES));
+            final int entryCount = buffer.getInt(offset + 2 * Integer.BYTES);
+            final Direction[] directions = Direction.values();
+            final List<Entry> entries = new ArrayList<>(entryCount);
+            int position = offset + 3 * Integer.BYTES;
+            for (int i = 0; i < entryCount; i++) {
+                final String word = readString(buffer, buffer.getInt(position));
+                final String hint = readString(buffer, buffer.getInt(position + Integer.BYTES));
+                final Direction direction = directions[buffer.get(position + 2 * Integer.BYTES)];
+                final int row = buffer.getInt(position + 2 * Integer.BYTES + 1);
+                final int col = buffer.getInt(position + 3 * Integer.BYTES + 1);
+                entries.add(new Entry(word, hint, direction, row, col));
+                position += 4 * Integer.BYTES + 1;
+            }
+            return new PuzzleTemplate(entries, name, description);
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("corrupt puzzle record at " + offset, e);
+        }
+    }
+
+    /**
+     * @param buffer the contents of a catalog file
+     * @param index index of a string in the string table of buffer
+     * @return the string
+     */
+    private static String readString(ByteBuffer buffer, int index) {
+        final int stringCount = buffer.getInt(2 * Integer.BYTES);
+        if (index < 0 || index >= stringCount) {
+            throw new IndexOutOfBoundsException("no string " + index);
+        }
+        final int position = buffer.getInt(HEADER_BYTES + index * Integer.BYTES);
+        final byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + Integer.BYTES, bytes);
+        return new String(bytes, UTF_8);
+    }
+}
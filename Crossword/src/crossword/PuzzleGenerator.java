@@ -0,0 +1,175 @@
+package crossword;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates consistent puzzles of any size, for benchmarks, load tests and scaling tests.
+ *
+ * <p> Words of random letters are laid out at random positions of a board, each one taking the letters already on the
+ * board where it crosses earlier words, so the words agree at every crossing. Two words of the same direction never
+ * share a cell or touch end to end, and no two words are the same, so the generated entries satisfy the rep invariant
+ * of PuzzleTemplate (see PuzzleValidator). The same arguments and seed always generate the same puzzle.
+ *
+ * <p> Command-line usage:
+ * <pre> java crossword.PuzzleGenerator ROWS COLUMNS ENTRIES HINTLENGTH FILEPATH [SEED] </pre>
+ * writes a puzzle of ENTRIES entries on a board of at most ROWS x COLUMNS cells, with hints of HINTLENGTH characters,
+ * to the puzzle file FILEPATH.
+ */
+public class PuzzleGenerator {
+
+    private static final int MIN_WORD_LENGTH = 3;
+    private static final int MAX_WORD_LENGTH = 12;
+    // random placements tried per entry before giving up on fitting the entries on the board
+    private static final int ATTEMPTS_PER_ENTRY = 200;
+    private static final int HINT_WORD_LENGTH = 6;
+
+    private PuzzleGenerator() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * Write a generated puzzle file.
+     *
+     * @param args rows, columns, entries, hint length, file path, and optionally a seed
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.err.println("usage: java crossword.PuzzleGenerator ROWS COLUMNS ENTRIES HINTLENGTH FILEPATH [SEED]");
+            return;
+        }
+        final int rows = Integer.parseInt(args[0]);
+        final int cols = Integer.parseInt(args[1]);
+        final int entries = Integer.parseInt(args[2]);
+        final int hintLength = Integer.parseInt(args[3]);
+        final Path file = Path.of(args[4]);
+        final long seed = args.length > 5 ? Long.parseLong(args[5]) : 0;
+        final String name = Utilities.getFileNameWithoutExtensionWithForwardSlash(file.getFileName().toString());
+        final String puzzle = generate(name, rows, cols, entries, hintLength, seed);
+        Files.writeString(file, puzzle, StandardCharsets.UTF_8);
+        System.err.println("Wrote " + entries + " entries on a " + rows + " x " + cols + " board to " + file);
+    }
+
+    /**
+     * Generate a puzzle file.
+     *
+     * @param name name of the puzzle, must not contain ", \, tabs or newlines
+     * @param rows the most rows of the board, must be > 0
+     * @param cols the most columns of the board, must be > 0
+     * @param entries number of entries, must be >= 0
+     * @param hintLength number of characters of each hint, must be > 0
+     * @param seed seed of the random layout
+     * @return a puzzle file, following the grammar Puzzle.g, of a consistent puzzle with these entries
+     * @throws IllegalArgumentException if the entries do not fit on the board
+     */
+    public static String generate(String name, int rows, int cols, int entries, int hintLength, long seed) {
+        final StringBuilder puzzle = new StringBuilder();
+        puzzle.append(">> \"").append(name).append("\" \"A generated puzzle of ").append(entries).append(" entries on ")
+              .append(rows).append(" x ").append(cols).append(" cells\"\n\n");
+        for (Entry entry : generateEntries(rows, cols, entries, hintLength, seed)) {
+            puzzle.append('(').append(entry.getWord())
+                  .append(", \"").append(entry.getHint())
+                  .append("\", ").append(entry.getDirection())
+                  .append(", ").append(entry.getRow())
+                  .append(", ").append(entry.getCol())
+                  .append(")\n");
+        }
+        return puzzle.toString();
+    }
+
+    /**
+     * Generate the entries of a puzzle.
+     *
+     * @param rows the most rows of the board, must be > 0
+     * @param cols the most columns of the board, must be > 0
+     * @param entries number of entries, must be >= 0
+     * @param hintLength number of characters of each hint, must be > 0
+     * @param seed seed of the random layout
+     * @return entries of a consistent puzzle, with words of lowercase letters that all fit in rows x cols cells,
+     *         and hints of hintLength lowercase letters and single spaces, starting and ending with a letter
+     * @throws IllegalArgumentException if the arguments are not valid, or the entries do not fit on the board
+     */
+    public static List<Entry> generateEntries(int rows, int cols, int entries, int hintLength, long seed) {
+        if (rows <= 0 || cols <= 0 || entries < 0 || hintLength <= 0) {
+            throw new IllegalArgumentException("not a valid puzzle size: " + rows + " x " + cols + " cells, "
+                    + entries + " entries, hints of " + hintLength + " characters");
+        }
+        if (Math.max(rows, cols) < MIN_WORD_LENGTH && entries > 0) {
+            throw new IllegalArgumentException("no word fits on a board of " + rows + " x " + cols + " cells");
+        }
+        final Random random = new Random(seed);
+        final char[][] letters = new char[rows][cols];
+        final boolean[][] acrossTaken = new boolean[rows][cols];
+        final boolean[][] downTaken = new boolean[rows][cols];
+        final Set<String> words = new HashSet<>();
+        final List<Entry> entryList = new ArrayList<>();
+
+        final long maxAttempts = (long) ATTEMPTS_PER_ENTRY * entries;
+        for (long attempt = 0; entryList.size() < entries; attempt++) {
+            if (attempt == maxAttempts) {
+                throw new IllegalArgumentException("could only fit " + entryList.size() + " of " + entries
+                        + " entries on a board of " + rows + " x " + cols + " cells");
+            }
+            final Direction direction = cols < MIN_WORD_LENGTH || (rows >= MIN_WORD_LENGTH && random.nextBoolean())
+                    ? Direction.DOWN : Direction.ACROSS;
+            final boolean across = direction == Direction.ACROSS;
+            final int maxLength = Math.min(MAX_WORD_LENGTH, across ? cols : rows);
+            final int length = MIN_WORD_LENGTH + random.nextInt(maxLength - MIN_WORD_LENGTH + 1);
+            final int row = random.nextInt(across ? rows : rows - length + 1);
+            final int col = random.nextInt(across ? cols - length + 1 : cols);
+            final boolean[][] taken = across ? acrossTaken : downTaken;
+
+            // words of the same direction must not share a cell, or touch end to end and read as one word
+            final int beforeRow = across ? row : row - 1;
+            final int beforeCol = across ? col - 1 : col;
+            final int afterRow = across ? row : row + length;
+            final int afterCol = across ? col + length : col;
+            if ((beforeRow >= 0 && beforeCol >= 0 && taken[beforeRow][beforeCol])
+                    || (afterRow < rows && afterCol < cols && taken[afterRow][afterCol])) {
+                continue;
+            }
+            final char[] word = new char[length];
+            boolean fits = true;
+            for (int i = 0; i < length && fits; i++) {
+                final int r = across ? row : row + i;
+                final int c = across ? col + i : col;
+                fits = !taken[r][c];
+                word[i] = letters[r][c] != 0 ? letters[r][c] : (char) ('a' + random.nextInt(26));
+            }
+            if (!fits || !words.add(new String(word))) {
+                continue;
+            }
+            for (int i = 0; i < length; i++) {
+                final int r = across ? row : row + i;
+                final int c = across ? col + i : col;
+                letters[r][c] = word[i];
+                taken[r][c] = true;
+            }
+            entryList.add(new Entry(new String(word), makeHint(random, hintLength), direction, row, col));
+        }
+        return Collections.unmodifiableList(entryList);
+    }
+
+    /**
+     * @param random source of the letters
+     * @param length must be > 0
+     * @return a hint of length lowercase letters, in words separated by single spaces
+     */
+    private static String makeHint(Random random, int length) {
+        final char[] hint = new char[length];
+        for (int i = 0; i < length; i++) {
+            final boolean space = i % (HINT_WORD_LENGTH + 1) == HINT_WORD_LENGTH && i < length - 1;
+            hint[i] = space ? ' ' : (char) ('a' + random.nextInt(26));
+        }
+        return new String(hint);
+    }
+}
@@ -1,9 +1,9 @@
 package crossword;
 
 
-import java.io.File;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -40,7 +40,14 @@ public class PuzzleParser {
         STRING, INT, WHITESPACE
     }
 
-    private static Parser<PuzzleGrammar> parser = makeParser();
+    /**
+     * Holds the parser compiled from the grammar. The grammar is only compiled when parseWithParserlib() first needs it,
+     * since parse() does not; class initialization makes that happen once, safely for all threads.
+     * A Parser keeps no state between calls to parse(), so this one is shared by all threads.
+     */
+    private static class ParserHolder {
+        private static final Parser<PuzzleGrammar> PARSER = makeParser();
+    }
     
     /**
      * Compile the grammar into a parser.
@@ -49,10 +56,12 @@ public class PuzzleParser {
      * @throws RuntimeException if grammar file can't be read or has syntax errors
      */
     private static Parser<PuzzleGrammar> makeParser() {
-        try {
-            // read the grammar as a file, relative to the project root.
-            final File grammarFile = new File("src/crossword/Puzzle.g");
-            return Parser.compile(grammarFile, PuzzleGrammar.FILE);
+        // read the grammar from the classpath, next to this class, so it is found whatever the working directory
+        try (InputStream grammar = PuzzleParser.class.getResourceAsStream("Puzzle.g")) {
+            if (grammar == null) {
+                throw new IOException("Puzzle.g not found on the classpath");
+            }
+            return Parser.compile(grammar, PuzzleGrammar.FILE);
             
         // Parser.compile() throws two checked exceptions.
         // Translate these checked exceptions into unchecked RuntimeExceptions,
@@ -67,13 +76,93 @@ public class PuzzleParser {
     /**
      * Parse a string into a puzzle.
      * 
+     * <p> Uses a hand-written recursive-descent parser for the grammar in Puzzle.g, which accepts the same strings
+     * and makes the same puzzles as parseWithParserlib(), without building a parse tree.
+     * 
      * @param string string to parse
      * @return Puzzle parsed from the entire string
-     * @throws UnableToParseException if the string doesn't match the Puzzle grammar
+     * @throws UnableToParseException if the string doesn't match the Puzzle grammar, giving the line and column where it stopped matching
      */
     public static Puzzle parse(final String string) throws UnableToParseException {
+        final TextCursor cursor = new TextCursor(string);
+        
+        // FILE ::= ">>" NAME DESCRIPTION ENTRY*;
+        cursor.skipWhitespace();
+        cursor.expect(">>");
+        cursor.skipWhitespace();
+        final String name = cursor.quotedString();
+        final String description = cursor.quotedString();
+        final List<Entry> entryList = new ArrayList<>();
+        while (cursor.lookingAt('(')) {
+            entryList.add(parseEntry(cursor));
+        }
+        if (!cursor.atEnd()) {
+            throw cursor.error("(");
+        }
+        
+        return new Puzzle(entryList, name, description);
+    }
+    
+    /**
+     * Parse ENTRY ::= "(" WORDNAME "," CLUE "," DIRECTION "," ROW "," COL ")" and the whitespace after it.
+     * 
+     * @param cursor positioned at the start of an entry, advanced past it
+     * @return the entry parsed
+     * @throws UnableToParseException if the next characters are not an entry
+     */
+    private static Entry parseEntry(final TextCursor cursor) throws UnableToParseException {
+        cursor.expect('(');
+        cursor.skipWhitespace();
+        
+        // WORDNAME ::= [a-z]+; as with parserlib, its text includes any whitespace between and after the letters
+        final int wordStart = cursor.getPosition();
+        if (!cursor.skipLowercaseLetters()) {
+            throw cursor.error("[a-z]");
+        }
+        while (cursor.skipWhitespace() && cursor.skipLowercaseLetters()) {
+            // more letters after the whitespace
+        }
+        final String wordname = cursor.textFrom(wordStart);
+        cursor.expect(',');
+        cursor.skipWhitespace();
+        
+        final String clue = cursor.quotedString();
+        cursor.expect(',');
+        cursor.skipWhitespace();
+        
+        // DIRECTION ::= "DOWN" | "ACROSS"; as with parserlib, its text includes the whitespace after it,
+        // so only a "DOWN" directly followed by "," is DOWN
+        final boolean down = cursor.tryConsume("DOWN");
+        if (!down && !cursor.tryConsume("ACROSS")) {
+            throw cursor.error("DOWN or ACROSS");
+        }
+        final boolean spaced = cursor.skipWhitespace();
+        final Direction direction = down && !spaced ? Direction.DOWN : Direction.ACROSS;
+        cursor.expect(',');
+        cursor.skipWhitespace();
+        
+        final int row = cursor.integerRule();
+        cursor.expect(',');
+        cursor.skipWhitespace();
+        
+        final int col = cursor.integerRule();
+        cursor.expect(')');
+        cursor.skipWhitespace();
+        
+        return new Entry(wordname, clue, direction, row, col);
+    }
+    
+    /**
+     * Parse a string into a puzzle with parserlib and the grammar in Puzzle.g.
+     * This is the reference implementation of parse(), which is faster.
+     * 
+     * @param string string to parse
+     * @return Puzzle parsed from the entire string
+     * @throws UnableToParseException if the string doesn't match the Puzzle grammar
+     */
+    static Puzzle parseWithParserlib(final String string) throws UnableToParseException {
         // parse the example into a parse tree
-        final ParseTree<PuzzleGrammar> parseTree = parser.parse(string);
+        final ParseTree<PuzzleGrammar> parseTree = ParserHolder.PARSER.parse(string);
 
         // display the parse tree in various ways, for debugging only
 //         System.out.println("parse tree " + parseTree);
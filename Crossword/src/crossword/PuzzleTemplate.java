@@ -0,0 +1,316 @@
+package crossword;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable datatype representing the parsed layout of a crossword puzzle, shared by every game played on it.
+ * A template has a name, description, and list of entries (words, hints, directions and starting locations), but no guesses:
+ * each game holds its own guesses in a Puzzle made from the template.
+ *
+ */
+public class PuzzleTemplate {
+
+    // Abstraction Function
+    // AF(entryList, name, description, numRows, numCols, solutionGrid, cellToEntries, cellToOffsets, blankClientEntryStrings, blankClientString)
+    // -> the layout of a crossword puzzle with name name and description description whose dimensions are numRows x numCols, and whose words,
+    // hints, locations and directions are contained inside entryList.
+    // The board is laid out row by row, so cell (row, col) is index row * numCols + col of solutionGrid, cellToEntries and cellToOffsets:
+    // solutionGrid holds the letter of the answer in each cell ('\0' if no entry passes through it), and cellToEntries[cell][k] is the
+    // index in entryList of the k-th entry passing through cell, whose letter in that cell is at position cellToOffsets[cell][k].
+    // blankClientEntryStrings[i] is the line describing entryList.get(i) in the minimal client string of a game without guesses,
+    // and blankClientString is that whole minimal client string.
+
+    // Representation Invariant
+    // - all words in the entries of entryList must be unique
+    // - if two words intersect on the board, they must intersect at the same letter
+    // - no words can overlap on the board
+    // - every entry of entryList has no guess (its guess is all '*')
+    // - solutionGrid.length == cellToEntries.length == cellToOffsets.length == numRows * numCols
+    // - for every entry e = entryList.get(i) and 0 <= j < e.getWord().length(), with cell the index of the j-th letter of e:
+    //     solutionGrid[cell] == e.getWord().charAt(j), and (i, j) appears in cellToEntries[cell], cellToOffsets[cell]
+    // - blankClientEntryStrings.length == entryList.size()
+    //
+    // Safety from rep exposure
+    // - all fields private and final
+    // - entryList is a copy of the list given to the constructor, and is only returned as an unmodifiable view; Entry is immutable
+    // - name, description, blankClientString are immutable Strings
+    // - the grid arrays are built in the constructor and never returned to clients, only single elements of them
+    // - getBlankClientEntryStrings() returns a copy of blankClientEntryStrings
+    //
+    // Thread safety argument
+    //   Datatype is threadsafe immutable
+    //      - no mutators, all fields are private and final, no rep exposure
+
+    private final List<Entry> entryList;
+    private final String name;
+    private final String description;
+    private final int numRows;
+    private final int numCols;
+    private final char[] solutionGrid;
+    private final int[][] cellToEntries;
+    private final int[][] cellToOffsets;
+    private final String[] blankClientEntryStrings;
+    private final String blankClientString;
+
+    /**
+     * Make a new puzzle template with the specified name, description, and list of entries
+     * @param entryList the list of entries, whose guesses are ignored
+     * @param name the name of the puzzle
+     * @param description the description of the puzzle
+     * @throws IllegalArgumentException if the entries are not consistent, with a message listing every violation found by PuzzleValidator
+     */
+    public PuzzleTemplate(List<Entry> entryList, String name, String description) {
+        this.name = name;
+        this.description = description;
+        final List<Entry> entries = new ArrayList<>();
+        for (Entry entry: entryList) {
+            entries.add(new Entry(entry.getWord(), entry.getHint(), entry.getDirection(), entry.getRow(), entry.getCol()));
+        }
+        this.entryList = Collections.unmodifiableList(entries);
+        final List<String> violations = PuzzleValidator.validate(this.entryList);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(String.join("\n", violations));
+        }
+        final List<Integer> dims = getDims(this.entryList);
+        this.numRows = dims.get(0);
+        this.numCols = dims.get(1);
+
+        // build the solution grid and the cell -> (entry, offset) crossing index in two passes,
+        // first counting the entries through each cell so each cell's index is allocated once
+        final int numCells = numRows * numCols;
+        this.solutionGrid = new char[numCells];
+        final int[] entriesPerCell = new int[numCells];
+        for (Entry entry: this.entryList) {
+            for (int i = 0; i < entry.getWord().length(); i++) {
+                entriesPerCell[cellIndex(entry, i)]++;
+            }
+        }
+        this.cellToEntries = new int[numCells][];
+        this.cellToOffsets = new int[numCells][];
+        for (int cell = 0; cell < numCells; cell++) {
+            this.cellToEntries[cell] = new int[entriesPerCell[cell]];
+            this.cellToOffsets[cell] = new int[entriesPerCell[cell]];
+            entriesPerCell[cell] = 0;
+        }
+        for (int index = 0; index < this.entryList.size(); index++) {
+            Entry entry = this.entryList.get(index);
+            String word = entry.getWord();
+            for (int i = 0; i < word.length(); i++) {
+                int cell = cellIndex(entry, i);
+                this.solutionGrid[cell] = word.charAt(i);
+                this.cellToEntries[cell][entriesPerCell[cell]] = index;
+                this.cellToOffsets[cell][entriesPerCell[cell]] = i;
+                entriesPerCell[cell]++;
+            }
+        }
+
+        this.blankClientEntryStrings = new String[this.entryList.size()];
+        int length = 0;
+        for (int index = 0; index < this.entryList.size(); index++) {
+            this.blankClientEntryStrings[index] = makeClientEntryString(index, this.entryList.get(index));
+            length += this.blankClientEntryStrings[index].length() + 1;
+        }
+        this.blankClientString = makeClientString(name, description, this.blankClientEntryStrings, length);
+        checkRep();
+    }
+
+    /**
+     * Return the dimensions of the smallest rectangle (board) that includes this puzzle
+     *
+     * @param entryList the list of entries of the puzzle
+     * @return the dimensions of the smallest rectangle containing this puzzle
+     */
+    private static List<Integer> getDims(List<Entry> entryList) {
+        int maxRow = 0;
+        int maxCol = 0;
+        for (Entry entry: entryList) {
+            if (entry.getDirection() == Direction.ACROSS) {
+                if (entry.getRow() + 1 > maxRow) {
+                    maxRow = entry.getRow() + 1;
+                }
+                if (entry.getCol() + entry.getWord().length() > maxCol) {
+                    maxCol = entry.getCol() + entry.getWord().length();
+                }
+            }
+            else {
+                if (entry.getRow() + entry.getWord().length() > maxRow) {
+                    maxRow = entry.getRow() + entry.getWord().length();
+                }
+                if (entry.getCol() + 1 > maxCol) {
+                    maxCol = entry.getCol() + 1;
+                }
+            }
+        }
+        maxRow = java.lang.Math.max(maxRow, 1);
+        maxCol = java.lang.Math.max(maxCol, 1);
+        return List.of(maxRow, maxCol);
+    }
+
+    private void checkRep() {
+        assert this.solutionGrid.length == this.numRows * this.numCols;
+        assert this.cellToEntries.length == this.solutionGrid.length && this.cellToOffsets.length == this.solutionGrid.length;
+        assert this.blankClientEntryStrings.length == this.entryList.size();
+    }
+
+    /**
+     * Get the index into the board grids of the cell holding the given letter of an entry
+     * @param entry an entry of this puzzle
+     * @param offset the position of the letter within the entry's word, must be 0 <= offset < entry.getWord().length()
+     * @return the index (row * numCols + col) of the cell holding letter offset of entry
+     */
+    int cellIndex(Entry entry, int offset) {
+        if (entry.getDirection() == Direction.DOWN) {
+            return (entry.getRow() + offset) * this.numCols + entry.getCol();
+        }
+        return entry.getRow() * this.numCols + entry.getCol() + offset;
+    }
+
+    /**
+     * @return the number of cells of this puzzle's board, numRows * numCols
+     */
+    int getNumCells() {
+        return this.solutionGrid.length;
+    }
+
+    /**
+     * @param cell index of a cell of the board, must be 0 <= cell < getNumCells()
+     * @return the letter of the answer in cell, or '\0' if no entry passes through cell
+     */
+    char getSolution(int cell) {
+        return this.solutionGrid[cell];
+    }
+
+    /**
+     * @param cell index of a cell of the board, must be 0 <= cell < getNumCells()
+     * @return the number of entries passing through cell
+     */
+    int getNumCellEntries(int cell) {
+        return this.cellToEntries[cell].length;
+    }
+
+    /**
+     * @param cell index of a cell of the board, must be 0 <= cell < getNumCells()
+     * @param k must be 0 <= k < getNumCellEntries(cell)
+     * @return the index in getEntryList() of the k-th entry passing through cell, in increasing order of index
+     */
+    int getCellEntry(int cell, int k) {
+        return this.cellToEntries[cell][k];
+    }
+
+    /**
+     * @param cell index of a cell of the board, must be 0 <= cell < getNumCells()
+     * @param k must be 0 <= k < getNumCellEntries(cell)
+     * @return the position of cell's letter within the word of the k-th entry passing through cell
+     */
+    int getCellOffset(int cell, int k) {
+        return this.cellToOffsets[cell][k];
+    }
+
+    /**
+     * @return a new array holding, for each entry of this template, its line in the minimal client string of a game without guesses
+     */
+    String[] getBlankClientEntryStrings() {
+        return this.blankClientEntryStrings.clone();
+    }
+
+    /**
+     * @return the minimal client string of a game on this template without guesses, see Puzzle.makeClientString()
+     */
+    String getBlankClientString() {
+        return this.blankClientString;
+    }
+
+    /**
+     * Make the line describing an entry in the minimal client string of a puzzle
+     * @param index the index of the entry in the puzzle's list of entries
+     * @param entry the entry
+     * @return the entry as it appears in the minimal client string, following the ENTRY rule of MinimalPuzzle.g
+     */
+    static String makeClientEntryString(int index, Entry entry) {
+        return "(" + index + ", "
+                + "\"" + entry.getHint() + "\"" + ", "
+                + entry.getDirection() + ", "
+                + entry.getRow() + ", "
+                + entry.getCol() + ", "
+                + entry.getWord().length() + ", "
+                + "\"" + entry.getGuess() + "\"" + ")";
+    }
+
+    /**
+     * Make the minimal client string of a puzzle from the lines describing its entries
+     * @param name the name of the puzzle
+     * @param description the description of the puzzle
+     * @param clientEntryStrings the lines describing the entries of the puzzle, in order
+     * @param length the total length of the lines, plus one per line
+     * @return the minimal client string, following the grammar MinimalPuzzle.g
+     */
+    static String makeClientString(String name, String description, String[] clientEntryStrings, int length) {
+        StringBuilder builder = new StringBuilder(length + name.length() + description.length() + 16);
+        builder.append(">> \"").append(name).append("\" \"").append(description).append("\"\n\n");
+        for (String entryString : clientEntryStrings) {
+            builder.append(entryString).append('\n');
+        }
+        builder.setLength(builder.length() - 1);
+        return builder.toString();
+    }
+
+    /**
+     * Get the list of entries of this puzzle, none of which has a guess
+     * @return an unmodifiable list of this puzzle's entries
+     */
+    public List<Entry> getEntryList() {
+        return this.entryList;
+    }
+
+    /**
+     * @return the name of this puzzle
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return the description of this puzzle
+     */
+    public String getDescription() {
+        return this.description;
+    }
+
+    /**
+     * @return the number of rows of this puzzle's board - see getDims spec
+     */
+    public int getNumRows() {
+        return this.numRows;
+    }
+
+    /**
+     * @return the number of columns of this puzzle's board - see getDims spec
+     */
+    public int getNumCols() {
+        return this.numCols;
+    }
+
+    @Override
+    public boolean equals(Object that) {
+        return that instanceof PuzzleTemplate &&
+                this.entryList.equals(((PuzzleTemplate) that).entryList) &&
+                this.name.equals(((PuzzleTemplate) that).name) &&
+                this.description.equals(((PuzzleTemplate) that).description);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.entryList.size() + this.name.length() + this.description.length() + this.numRows + this.numCols;
+    }
+
+    @Override
+    public String toString() {
+        String puzzleString = ">> " + "\"" + this.name + "\"" + " " + "\"" + this.description + "\"" + "\n\n";
+        for (Entry entry: this.entryList) {
+            puzzleString += entry.toString() + "\n";
+        }
+        return puzzleString.substring(0, puzzleString.length() - 1);
+    }
+}
@@ -0,0 +1,184 @@
+package crossword;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks that the entries of a puzzle form a consistent crossword, and reports every way in which they do not,
+ * with the positions (row, column) where it happens:
+ *   - two entries cross at a cell with different letters
+ *   - two entries overlap, sharing more than one cell
+ *   - two entries have the same word
+ *   - the board is too large to lay out
+ *
+ * <p> Validation lays the entries out on primitive arrays with one slot per cell of the board, in a single pass
+ * over their letters, so it takes time linear in the total length of the words plus the size of the board.
+ */
+public class PuzzleValidator {
+
+    // the largest number of cells of a board that can be laid out in arrays
+    private static final long MAX_CELLS = Integer.MAX_VALUE - 8;
+
+    private PuzzleValidator() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * Find everything that makes the entries of a puzzle inconsistent
+     *
+     * @param entries the entries of a puzzle, in order
+     * @return a description of each violation, naming the entries by index and word and giving its position;
+     *         empty iff the entries form a consistent crossword
+     */
+    public static List<String> validate(List<Entry> entries) {
+        final int count = entries.size();
+        final int[] rows = new int[count];
+        final int[] cols = new int[count];
+        final boolean[] across = new boolean[count];
+        final int[] lengths = new int[count];
+        final String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            final Entry entry = entries.get(i);
+            rows[i] = entry.getRow();
+            cols[i] = entry.getCol();
+            across[i] = entry.getDirection() == Direction.ACROSS;
+            words[i] = entry.getWord();
+            lengths[i] = words[i].length();
+        }
+        return validate(rows, cols, across, lengths, words);
+    }
+
+    /**
+     * Find everything that makes the layout of a minimal puzzle inconsistent. Minimal entries have no words,
+     * so only their positions are checked: that they do not overlap, on a board that is not too large.
+     *
+     * @param entries the entries of a minimal puzzle, in order
+     * @return a description of each violation, naming the entries by index and giving its position;
+     *         empty iff the entries can be laid out without overlapping
+     */
+    public static List<String> validateLayout(List<MinimalEntry> entries) {
+        final int count = entries.size();
+        final int[] rows = new int[count];
+        final int[] cols = new int[count];
+        final boolean[] across = new boolean[count];
+        final int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            final MinimalEntry entry = entries.get(i);
+            rows[i] = entry.getRow();
+            cols[i] = entry.getCol();
+            across[i] = entry.getDirection() == Direction.ACROSS;
+            lengths[i] = entry.getLength();
+        }
+        return validate(rows, cols, across, lengths, null);
+    }
+
+    /**
+     * @param rows rows[i] is the starting row of entry i
+     * @param cols cols[i] is the starting column of entry i
+     * @param across across[i] is true iff entry i goes ACROSS
+     * @param lengths lengths[i] is the number of letters of entry i
+     * @param words words[i] is the word of entry i, or words is null if the words are unknown,
+     *              in which case letters and duplicate words are not checked
+     * @return a description of each violation
+     */
+    private static List<String> validate(int[] rows, int[] cols, boolean[] across, int[] lengths, String[] words) {
+        final int count = rows.length;
+        final List<String> violations = new ArrayList<>();
+
+        // entries start at row, col >= 0 (see the rep invariants of Entry and MinimalEntry)
+        long numRows = 1;
+        long numCols = 1;
+        for (int i = 0; i < count; i++) {
+            numRows = Math.max(numRows, (long) rows[i] + (across[i] ? 1 : lengths[i]));
+            numCols = Math.max(numCols, (long) cols[i] + (across[i] ? lengths[i] : 1));
+        }
+        if (numRows * numCols > MAX_CELLS) {
+            violations.add("the board of " + numRows + " x " + numCols + " cells is too large");
+            return Collections.unmodifiableList(violations);
+        }
+
+        // one slot per cell: the letter there and the first entry that put it there (index + 1, or 0 for none),
+        // and the entry of each direction that continues past the cell to the next one
+        final int numCells = (int) (numRows * numCols);
+        final char[] letters = words == null ? null : new char[numCells];
+        final int[] letterOwners = words == null ? null : new int[numCells];
+        final int[] acrossContinuing = new int[numCells];
+        final int[] downContinuing = new int[numCells];
+        // pairs of entries already reported, so that each pair is reported once
+        final Set<Long> reportedPairs = new HashSet<>();
+
+        for (int i = 0; i < count; i++) {
+            final int[] continuing = across[i] ? acrossContinuing : downContinuing;
+            for (int offset = 0; offset < lengths[i]; offset++) {
+                final int row = across[i] ? rows[i] : rows[i] + offset;
+                final int col = across[i] ? cols[i] + offset : cols[i];
+                final int cell = (int) (row * numCols + col);
+
+                if (words != null) {
+                    final char letter = words[i].charAt(offset);
+                    if (letterOwners[cell] == 0) {
+                        letters[cell] = letter;
+                        letterOwners[cell] = i + 1;
+                    } else if (letters[cell] != letter && reportedPairs.add(pair(letterOwners[cell] - 1, i))) {
+                        violations.add(describe(letterOwners[cell] - 1, words) + " and " + describe(i, words)
+                                + " cross at " + describePosition(row, col)
+                                + " with different letters '" + letters[cell] + "' and '" + letter + "'");
+                    }
+                }
+
+                // two entries of the same direction that both continue past a cell also share the next cell
+                if (offset < lengths[i] - 1) {
+                    if (continuing[cell] == 0) {
+                        continuing[cell] = i + 1;
+                    } else if (reportedPairs.add(pair(continuing[cell] - 1, i))) {
+                        violations.add(describe(continuing[cell] - 1, words) + " and " + describe(i, words)
+                                + " overlap from " + describePosition(row, col));
+                    }
+                }
+            }
+        }
+
+        if (words != null) {
+            final Map<String, Integer> wordToFirstEntry = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                final Integer first = wordToFirstEntry.putIfAbsent(words[i], i);
+                if (first != null) {
+                    violations.add(describe(first, words) + " and " + describe(i, words) + " have the same word");
+                }
+            }
+        }
+        return Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * @param first index of an entry
+     * @param second index of a later entry
+     * @return a number identifying the pair of entries
+     */
+    private static long pair(int first, int second) {
+        return ((long) first << Integer.SIZE) | second;
+    }
+
+    /**
+     * @param index index of an entry
+     * @param words the words of the entries, or null if unknown
+     * @return a description of the entry for a violation
+     */
+    private static String describe(int index, String[] words) {
+        return words == null ? "entry " + index : "entry " + index + " (" + words[index] + ")";
+    }
+
+    /**
+     * @param row a row
+     * @param col a column
+     * @return a description of the position for a violation
+     */
+    private static String describePosition(long row, long col) {
+        return "row " + row + ", column " + col;
+    }
+}
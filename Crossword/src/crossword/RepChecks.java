@@ -0,0 +1,37 @@
+package crossword;
+
+/**
+ * Runtime switch for the representation invariant checks that run on hot paths: the checkRep() calls made when a puzzle
+ * is serialized for a client or compared, and on every request handled by WebServer. Invariants checked once when an
+ * object is made, like the consistency of a PuzzleTemplate, always run.
+ *
+ * <p> Hot checks are on by default, and can be turned off at startup with the system property
+ * {@code -Dcrossword.hotChecks=false}, or at any time with setHotChecksEnabled(). Either way the checks themselves
+ * are assert statements, so they only fail when assertions are enabled with -ea.
+ *
+ * <p> Thread safety argument: the switch is a volatile boolean, so a change is seen by every thread's next check.
+ */
+public class RepChecks {
+
+    private static volatile boolean hotChecksEnabled = Boolean.parseBoolean(System.getProperty("crossword.hotChecks", "true"));
+
+    private RepChecks() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * @return true iff the hot-path invariant checks should run
+     */
+    public static boolean hotChecksEnabled() {
+        return hotChecksEnabled;
+    }
+
+    /**
+     * Turn the hot-path invariant checks on or off for every thread.
+     *
+     * @param enabled true to run the checks
+     */
+    public static void setHotChecksEnabled(boolean enabled) {
+        hotChecksEnabled = enabled;
+    }
+}
@@ -14,6 +14,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Crossword puzzle server runner
@@ -21,27 +25,84 @@ import java.util.Queue;
 public class Server {
     
     private static final int PORT = 4949;
+    private static final int LOADER_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final long DEFAULT_CACHED_CELLS = 1_000_000;
     
     /**
      * Start a Crossword Extravaganza server using the given arguments.
      *
      * <p> Command-line usage:
-     * <pre> java memory.ServerMain FILEPATH </pre>
+     * <pre> java memory.ServerMain [--virtual-threads] [--nio] [--lazy [CELLS]] FILEPATH </pre>
+     * or
+     * <pre> java memory.ServerMain [--virtual-threads] [--nio] --catalog CATALOGFILE [CELLS] </pre>
+     * or
+     * <pre> java memory.ServerMain --validate FILEPATH </pre>
      * where:
      * 
      * <p> FILEPATH is the path to a valid puzzle file, which will be loaded as 
      *     the starting puzzle
      *     
+     * <p> --lazy only lists the puzzle files at startup, and parses each puzzle when the first game
+     *     of it is created. At most CELLS cells of parsed puzzles (default {@value #DEFAULT_CACHED_CELLS})
+     *     are kept in memory, dropping the least recently played puzzles first
+     *     
+     * <p> --catalog serves the puzzles of CATALOGFILE, compiled by PuzzleCatalogFile, instead of a folder.
+     *     Puzzles are decoded from the memory-mapped file on demand, cached like with --lazy
+     *     
+     * <p> --virtual-threads handles each request on a virtual thread instead of a pool of platform threads, if the Java runtime
+     *     has them (Java 21 or later), so that many concurrent requests do not each hold a platform thread
+     *     
+     * <p> --nio serves requests with NioHttpServer instead of the HttpServer of the JDK
+     *     
+     * <p> --validate loads every puzzle of the folder like the server does at startup, reporting the files that
+     *     cannot be parsed and every inconsistency of the others (see PuzzleValidator), and exits without starting a server
+     *     
      * <p> For example, to start a web server on a randomly-chosen port using the
      *     puzzle in {@code puzzle/simple.puzzle}:
      * <pre> 0 puzzles/simple.puzzle </pre>
      * 
-     * @param args The command line arguments should include only the folder where
-     *             the puzzles are located.
+     * @param args The command line arguments should include the folder where
+     *             the puzzles are located, optionally preceded by --lazy, or --catalog and a catalog file.
      * @throws IOException if an error occurs parsing a puzzle file or starting a server
      */
     public static void main(String[] args) throws IOException{
         final Queue<String> arguments = new LinkedList<>(Arrays.asList(args));
+        boolean virtualThreads = false;
+        if (arguments.peek() != null && arguments.peek().equals("--virtual-threads")) {
+            arguments.remove();
+            virtualThreads = true;
+        }
+        WebServer.Transport transport = WebServer.Transport.JDK;
+        if (arguments.peek() != null && arguments.peek().equals("--nio")) {
+            arguments.remove();
+            transport = WebServer.Transport.NIO;
+        }
+        
+        if (arguments.peek() != null && arguments.peek().equals("--catalog")) {
+            arguments.remove();
+            final String catalogFile = arguments.remove();
+            final long maxCachedCells = arguments.isEmpty() ? DEFAULT_CACHED_CELLS : parseCells(arguments.remove());
+            final PuzzleCatalog catalog = PuzzleCatalogFile.open(Path.of(catalogFile), maxCachedCells);
+            System.err.println("Found " + catalog.getPuzzleNames().size() + " puzzles in " + catalogFile + ", decoding them on demand");
+            new WebServer(catalog, PORT, virtualThreads, transport).start();
+            return;
+        }
+        
+        boolean validateOnly = false;
+        if (arguments.peek() != null && arguments.peek().equals("--validate")) {
+            arguments.remove();
+            validateOnly = true;
+        }
+        
+        boolean lazy = false;
+        long maxCachedCells = DEFAULT_CACHED_CELLS;
+        if (arguments.peek() != null && arguments.peek().equals("--lazy")) {
+            arguments.remove();
+            lazy = true;
+            if (arguments.size() > 1) {
+                maxCachedCells = parseCells(arguments.remove());
+            }
+        }
         
         // Filters for .puzzle files
         FilenameFilter filter = new FilenameFilter() {
@@ -53,33 +114,118 @@ public class Server {
         final File folder = new File(arguments.remove());
         final File[] listOfFiles = folder.listFiles(filter);
         
-        final Map<String, Puzzle> puzzleNameToPuzzle = new HashMap<>();
         final Map<String, String> puzzleNameToPuzzleDirectory = new HashMap<>();
-        for (File file : listOfFiles) {
-            // Do stuff with each file
-            String filePath = file.getPath();
-            String fileName;
-            if (filePath.contains("\\")) {
-                fileName = Utilities.getFileNameWithoutExtension(filePath);
-            }
-            else {
-                fileName = Utilities.getFileNameWithoutExtensionWithForwardSlash(filePath);
-                filePath.replaceAll("/", "[\\]");
+        if (lazy) {
+            for (File file : listOfFiles) {
+                puzzleNameToPuzzleDirectory.put(getPuzzleName(file.getPath()), file.getPath());
             }
+            System.err.println("Found " + puzzleNameToPuzzleDirectory.size() + " puzzles, parsing them on demand");
+            new WebServer(PuzzleCatalog.lazy(puzzleNameToPuzzleDirectory, maxCachedCells), PORT, virtualThreads, transport).start();
+            return;
+        }
+        
+        final Map<String, Puzzle> puzzleNameToPuzzle = new HashMap<>();
+        loadPuzzles(listOfFiles, puzzleNameToPuzzle, puzzleNameToPuzzleDirectory);
+        if (validateOnly) {
+            return;
+        }
+        new WebServer(PuzzleCatalog.eager(puzzleNameToPuzzle), PORT, virtualThreads, transport).start();
+        
+    }
+    
+    /**
+     * Parse puzzle files in parallel on a bounded pool of worker threads, and report how long it took.
+     * Files that cannot be read or parsed, or that are inconsistent, are reported and skipped, in the order of files.
+     * 
+     * @param files the puzzle files to load
+     * @param puzzleNameToPuzzle modified by this method to map the name of every puzzle loaded to the parsed puzzle
+     * @param puzzleNameToPuzzleDirectory modified by this method to map the name of every puzzle loaded to its file path
+     */
+    private static void loadPuzzles(File[] files, Map<String, Puzzle> puzzleNameToPuzzle, Map<String, String> puzzleNameToPuzzleDirectory) {
+        final long start = System.nanoTime();
+        final ExecutorService loaders = Executors.newFixedThreadPool(LOADER_THREADS);
+        final List<String> filePaths = new ArrayList<>();
+        final List<Future<Puzzle>> puzzles = new ArrayList<>();
+        for (File file : files) {
+            final String filePath = file.getPath();
+            filePaths.add(filePath);
+            puzzles.add(loaders.submit(() -> Puzzle.parseFromFile(filePath)));
+        }
+        loaders.shutdown();
+        
+        int failures = 0;
+        for (int i = 0; i < filePaths.size(); i++) {
+            final String filePath = filePaths.get(i);
+            final String fileName = getPuzzleName(filePath);
             try {
-                Puzzle puzzle = Puzzle.parseFromFile(filePath);
+                Puzzle puzzle = getLoadedPuzzle(puzzles.get(i));
                 puzzleNameToPuzzle.put(fileName, puzzle);
                 puzzleNameToPuzzleDirectory.put(fileName, filePath);
             } catch (IOException e) {
                 e.printStackTrace();
+                failures++;
             } catch (IllegalArgumentException e) {
+                // for an inconsistent puzzle, PuzzleTemplate lists every violation found by PuzzleValidator in the message
                 e.printStackTrace();
-            } catch (AssertionError e) {
-                System.out.println(filePath + " is an inconsistent puzzle");
+                failures++;
             }
         }
-        new WebServer(puzzleNameToPuzzle, puzzleNameToPuzzleDirectory, PORT).start();
         
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.println(String.format("Loaded %d of %d puzzles in %.2f s (%.0f files/s) with %d threads, %d failed",
+                puzzleNameToPuzzle.size(), files.length, seconds, files.length / Math.max(seconds, 1e-9), LOADER_THREADS, failures));
+    }
+    
+    /**
+     * @param argument command line argument giving a number of cells
+     * @return the number of cells
+     * @throws IllegalArgumentException if argument is not a number
+     */
+    private static long parseCells(String argument) {
+        try {
+            return Long.parseLong(argument);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("expected a number of cells: " + argument, e);
+        }
+    }
+    
+    /**
+     * @param filePath the path of a puzzle file, with forward or backward slashes
+     * @return the name of the puzzle, which is its file name without the extension
+     */
+    private static String getPuzzleName(String filePath) {
+        if (filePath.contains("\\")) {
+            return Utilities.getFileNameWithoutExtension(filePath);
+        }
+        return Utilities.getFileNameWithoutExtensionWithForwardSlash(filePath);
+    }
+    
+    /**
+     * Wait for a puzzle being loaded by loadPuzzles
+     * 
+     * @param puzzle the result of Puzzle.parseFromFile on a loader thread
+     * @return the parsed puzzle
+     * @throws IOException if the file could not be read
+     * @throws IllegalArgumentException if the file could not be parsed or the puzzle is inconsistent
+     */
+    private static Puzzle getLoadedPuzzle(Future<Puzzle> puzzle) throws IOException {
+        try {
+            return puzzle.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while loading puzzles", e);
+        } catch (ExecutionException e) {
+            // rethrow what parseFromFile threw, so it is reported like a puzzle loaded on this thread
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
     }
   
 }
@@ -0,0 +1,278 @@
+package crossword;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+/**
+ * A mutable position in a string being parsed by one of the hand-written parsers of this package.
+ * Matches whitespace and the String and Int terminals the way parserlib matches them inside the
+ * {@code @skip whitespace} blocks of Puzzle.g and MinimalPuzzle.g, and reports errors with the offset, line and column
+ * where the string stopped matching, like parserlib does.
+ *
+ * <p> Not threadsafe: each parse makes its own cursor.
+ */
+class TextCursor {
+
+    // Abstraction Function
+    // AF(input, position) -> the string input, of which the characters before index position have been parsed
+    //
+    // Representation Invariant
+    // - 0 <= position <= input.length()
+    //
+    // Safety from rep exposure
+    // - all fields private, input is immutable and position is a primitive
+
+    private static final int SNIPPET_LENGTH = 10;
+
+    private final String input;
+    private int position;
+
+    /**
+     * @param input string to parse, starting from its first character
+     */
+    TextCursor(String input) {
+        this.input = input;
+        this.position = 0;
+    }
+
+    private void checkRep() {
+        assert 0 <= this.position && this.position <= this.input.length();
+    }
+
+    /**
+     * @return the index of the next character to parse
+     */
+    int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * @return true iff the whole string has been parsed
+     */
+    boolean atEnd() {
+        return this.position == this.input.length();
+    }
+
+    /**
+     * @param c a character
+     * @return true iff the next character to parse is c
+     */
+    boolean lookingAt(char c) {
+        return this.position < this.input.length() && this.input.charAt(this.position) == c;
+    }
+
+    /**
+     * Skip over the next characters that match [a-z]
+     *
+     * @return true iff any letter was skipped
+     */
+    boolean skipLowercaseLetters() {
+        final int start = this.position;
+        while (this.position < this.input.length() && isLowercaseLetter(this.input.charAt(this.position))) {
+            this.position++;
+        }
+        return this.position > start;
+    }
+
+    /**
+     * @param start index of a parsed character
+     * @return the parsed characters from start to this position
+     */
+    String textFrom(int start) {
+        assert 0 <= start && start <= this.position;
+        return this.input.substring(start, this.position);
+    }
+
+    /**
+     * Skip over the next characters that match whitespace ::= [ \t\r\n]+
+     *
+     * @return true iff any whitespace was skipped
+     */
+    boolean skipWhitespace() {
+        final int start = this.position;
+        while (this.position < this.input.length() && isWhitespace(this.input.charAt(this.position))) {
+            this.position++;
+        }
+        return this.position > start;
+    }
+
+    /**
+     * Skip over the next character if it is c
+     *
+     * @param c a character
+     * @return true iff the next character was c
+     */
+    boolean tryConsume(char c) {
+        if (lookingAt(c)) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Skip over the next characters if they are literal
+     *
+     * @param literal a string
+     * @return true iff the next characters were literal
+     */
+    boolean tryConsume(String literal) {
+        if (this.input.startsWith(literal, this.position)) {
+            this.position += literal.length();
+            checkRep();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Skip over the next character, which must be c
+     *
+     * @param c a character
+     * @throws UnableToParseException if the next character is not c
+     */
+    void expect(char c) throws UnableToParseException {
+        if (!tryConsume(c)) {
+            throw error(String.valueOf(c));
+        }
+    }
+
+    /**
+     * Skip over the next characters, which must be literal
+     *
+     * @param literal a string
+     * @throws UnableToParseException if the next characters are not literal
+     */
+    void expect(String literal) throws UnableToParseException {
+        if (!tryConsume(literal)) {
+            throw error(literal);
+        }
+    }
+
+    /**
+     * Parse '"' String '"' inside a @skip whitespace block, where String ::= [^"\r\n\t\\]*,
+     * and skip the whitespace after it.
+     * Like parserlib, whitespace right after the opening quote is skipped rather than part of the String,
+     * but spaces before the closing quote are part of it.
+     *
+     * @return the text of the String between the quotes
+     * @throws UnableToParseException if the next characters are not a quoted String
+     */
+    String quotedString() throws UnableToParseException {
+        expect('"');
+        skipWhitespace();
+        final int start = this.position;
+        while (this.position < this.input.length() && isStringCharacter(this.input.charAt(this.position))) {
+            this.position++;
+        }
+        final String text = textFrom(start);
+        skipWhitespace();
+        expect('"');
+        skipWhitespace();
+        return text;
+    }
+
+    /**
+     * Parse Int ::= [0-9]+
+     *
+     * @param max the largest value allowed
+     * @return the value of the Int
+     * @throws UnableToParseException if the next characters are not an Int, or its value is more than max
+     */
+    long number(long max) throws UnableToParseException {
+        final int start = this.position;
+        long value = 0;
+        while (this.position < this.input.length() && isDigit(this.input.charAt(this.position))) {
+            final int digit = this.input.charAt(this.position) - '0';
+            if (value > (max - digit) / 10) {
+                this.position = start;
+                throw error("a number up to " + max);
+            }
+            value = value * 10 + digit;
+            this.position++;
+        }
+        if (this.position == start) {
+            throw error("[0-9]");
+        }
+        return value;
+    }
+
+    /**
+     * Parse Int ::= [0-9]+ with a value that fits in an int
+     *
+     * @return the value of the Int
+     * @throws UnableToParseException if the next characters are not an Int that fits in an int
+     */
+    int integer() throws UnableToParseException {
+        return (int) number(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parse a rule inside a @skip whitespace block whose only element is Int, like ROW ::= Int.
+     * parserlib includes the whitespace skipped after the Int in the text of such a rule, which then fails
+     * Integer.parseInt(), so whitespace after the Int is rejected here.
+     *
+     * @return the value of the Int
+     * @throws UnableToParseException if the next characters are not an Int that fits in an int,
+     *                                or are followed by whitespace
+     */
+    int integerRule() throws UnableToParseException {
+        final int value = integer();
+        if (lookingAtWhitespace()) {
+            throw error("no whitespace after a number");
+        }
+        return value;
+    }
+
+    /**
+     * Make an exception reporting that the string does not match at this position
+     *
+     * @param expected description of what was expected at this position
+     * @return an exception giving the offset, line and column of this position, what was expected, and what was there instead
+     */
+    UnableToParseException error(String expected) {
+        int line = 1;
+        int lineStart = 0;
+        for (int i = 0; i < this.position; i++) {
+            if (this.input.charAt(i) == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        final int column = this.position - lineStart + 1;
+        final String saw;
+        if (atEnd()) {
+            saw = "end of string";
+        } else if (this.input.length() - this.position > SNIPPET_LENGTH) {
+            saw = this.input.substring(this.position, this.position + SNIPPET_LENGTH) + "...";
+        } else {
+            saw = this.input.substring(this.position);
+        }
+        return new UnableToParseException("string does not match grammar\n"
+                + "Error at offset " + this.position + " (line " + line + " column " + column + ") of string being parsed\n"
+                + "  expected " + expected + "\n"
+                + "   but saw " + saw);
+    }
+
+    /**
+     * @return true iff the next character to parse matches [ \t\r\n]
+     */
+    private boolean lookingAtWhitespace() {
+        return this.position < this.input.length() && isWhitespace(this.input.charAt(this.position));
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean isLowercaseLetter(char c) {
+        return 'a' <= c && c <= 'z';
+    }
+
+    private static boolean isStringCharacter(char c) {
+        return c != '"' && c != '\r' && c != '\n' && c != '\t' && c != '\\';
+    }
+
+    private static boolean isDigit(char c) {
+        return '0' <= c && c <= '9';
+    }
+}
@@ -7,13 +7,18 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpContext;
@@ -23,71 +28,154 @@ import com.sun.net.httpserver.HttpServer;
 import crossword.web.ExceptionsFilter;
 import crossword.web.HeadersFilter;
 import crossword.web.LogFilter;
+import crossword.web.NioHttpServer;
 
 /**
  * A mutable datatype representing an HTTP WebServer that can support running multiple crossword puzzle games.
  */
 public class WebServer {
     
+    /**
+     * The HTTP servers a WebServer can run on. Both run the same handlers, with keep-alive connections.
+     */
+    public enum Transport {
+        /** com.sun.net.httpserver.HttpServer of the JDK */
+        JDK,
+        /** NioHttpServer, which sends every response from a single selector thread with TCP_NODELAY */
+        NIO
+    }
+    
     private final HttpServer server;
-    private final Map<String, Puzzle> puzzleNameToPuzzle;
-    private final Map<String, String> puzzleNameToPuzzleDirectory;
+    private final PuzzleCatalog catalog;
     private static final int SUCCESS = 200;
     private static final int ERROR = 404;
+    // connections waiting to be accepted, enough for a crowd of watchers reconnecting at once
+    private static final int BACKLOG = 1024;
     private final Map<String, String> playerToGameID;
     private final Map<String, Set<String>> gameIDToPlayers;
     private final Map<String, Puzzle> gameIDToPuzzle;
-    private int lastGameID;
+    private final AtomicInteger lastGameID;
+    private final ExecutorService executor;
+    private final AtomicInteger waitingWatchers;
     
-    private final Object lock = new Object();
+    private final Object registryLock = new Object();
     
     
     
     // Abstraction function:
-    //  AF(server, puzzleNameToPuzzleDirectory, playerToGameID, gameIDToPlayers, gameIDToPuzzle, lastGameID) = 
-    //     A web server supporting multiple crossword puzzle games. puzzleNameToPuzzleDirectory maps the names of crossword puzzle boards
-    //     to their directory path for all valid puzzles in the puzzles directory. playerToGameID maps players to the gameID of the game they are currently 
+    //  AF(server, catalog, playerToGameID, gameIDToPlayers, gameIDToPuzzle, lastGameID, executor, waitingWatchers) = 
+    //     A web server supporting multiple crossword puzzle games. catalog holds the crossword puzzle boards that can be played, and
+    //     gives the template new games on each board are made from. playerToGameID maps players to the gameID of the game they are currently 
     //     in. gameIDToPlayers maps gameIDs to the set of IDs of players who are currently playing that game. gameIDToPuzzle maps gameIDs to the instance of
     //     Puzzle on which the game is being played. lastGameID represents the most recent gameID used for creating a game (gameIDs are integers that are incremented 
-    //     every time a new game is created).
+    //     every time a new game is created). executor runs the handlers of requests, and waitingWatchers counts the /watchGame requests
+    //     currently waiting for a change.
+    //     server is either the HttpServer of the JDK or a NioHttpServer, which run the same handlers.
     //     
     //
     // Representation invariant:
     //  - gameIDToPuzzle.keySet() = gameIDToPlayers.keySet()
     //  - playerToGameID.get(player) = gameID for player in gameIDToPlayers.get(gameID)
     //  - lastGameID >= max { int(gameID) for gameID in gameIDtoPuzzle.keySet() } (not equal since there can be gaps)
+    //  - waitingWatchers >= 0
     //
     // Safety from rep exposure:
-    //  - all fields private and final, except lastGameID which is never shared with the client
-    //  - puzzleNameToPuzzleDirectory, playerToGameID, gameIDToPlayers, gameIDToPuzzle are never shared with the client in any method
+    //  - all fields private and final, lastGameID, executor and waitingWatchers are never shared with the client
+    //  - playerToGameID, gameIDToPlayers, gameIDToPuzzle are never shared with the client in any method
+    //  - catalog is shared with the caller of the constructor, which is okay since WebServer only reads puzzles from it
     //  - all methods return primitive datatypes int and void
     //  - getPlayerToGameID(), getGameIDToPlayers(), getGameIDToPuzzle() all create deep copies, so the reps are never shared with clients
     
     // Thread safety argument:
-    //   - our handler methods that mutate WebServer rep fields are not synchronized but it is okay since all blocks of code that mutate any WebServer rep fields are in synchronized blocks (using the lock of a special lock object)
-    //   - our other handler methods are not atomic or synchronized, but that is okay because our handlers only rely on helper methods from our thread safe Puzzle ADT,
-    //     which are atomic and synchronized via the monitor pattern. Thus, the order in which these Puzzle operations take place doesn't matter.
+    //   - playerToGameID, gameIDToPlayers, gameIDToPuzzle and the player sets in gameIDToPlayers are concurrent collections, and lastGameID is atomic,
+    //     so single lookups never need a lock
+    //   - updates that touch more than one of these maps (creating, joining and exiting a game) are done in blocks synchronized on registryLock,
+    //     together with the matching addPlayer/removePlayer on the game's Puzzle, so the maps and the players of each puzzle change together.
+    //     These blocks never wait or do I/O, so they are short
+    //   - all other work on a game (guesses, erases, checks, serializing responses) synchronizes only on that game's Puzzle, so players 
+    //     of different games never wait for each other
+    //   - catalog is a threadsafe PuzzleCatalog, and is never used while holding registryLock or a Puzzle lock
+    //   - locks are always acquired in the order registryLock, then Puzzle, so there is no deadlock
+    //   - handlers that change a game send their response headers only after the change, so requests of one player are applied in order
+    //   - /watchGame and /streamGame requests wait for a change as callbacks of Puzzle.versionAfter, which run on executor
+    //     and hold no lock until they make their response, so no thread waits for a change; waitingWatchers is atomic
     
     /**
      * Make a new web server using a list of crossword puzzles that listens for connections on port
      * 
      * @param puzzleNameToPuzzle a list of shared crossword puzzle boards
-     * @param puzzleNameToPuzzleDirectory a map of puzzle names to their directories (paths)
+     * @param puzzleNameToPuzzleDirectory a map of puzzle names to their directories (paths); not needed since games are made from puzzleNameToPuzzle
      * @param port server port number
      * @throws IOException if an error occurs starting the server
      */
     public WebServer(Map<String, Puzzle> puzzleNameToPuzzle, Map<String, String> puzzleNameToPuzzleDirectory, int port) throws IOException {
-        this.server = HttpServer.create(new InetSocketAddress(port), 0); 
-        this.puzzleNameToPuzzle = puzzleNameToPuzzle;
-        this.puzzleNameToPuzzleDirectory = puzzleNameToPuzzleDirectory;
+        this(PuzzleCatalog.eager(puzzleNameToPuzzle), port);
+    }
+    
+    /**
+     * Make a new web server offering the puzzles of a catalog that listens for connections on port
+     * 
+     * @param catalog the puzzles that can be played, shared with the caller
+     * @param port server port number
+     * @throws IOException if an error occurs starting the server
+     */
+    public WebServer(PuzzleCatalog catalog, int port) throws IOException {
+        this(catalog, port, false);
+    }
+    
+    /**
+     * Make a new web server offering the puzzles of a catalog that listens for connections on port with the HttpServer of the JDK,
+     *   handling each request on a virtual thread if virtualThreads is true and this Java runtime has them (Java 21 or later), 
+     *   or else on a pool of platform threads
+     * 
+     * @param catalog the puzzles that can be played, shared with the caller
+     * @param port server port number
+     * @param virtualThreads true to handle requests on virtual threads when available
+     * @throws IOException if an error occurs starting the server
+     */
+    public WebServer(PuzzleCatalog catalog, int port, boolean virtualThreads) throws IOException {
+        this(catalog, port, virtualThreads, Transport.JDK);
+    }
+    
+    /**
+     * Make a new web server offering the puzzles of a catalog that listens for connections on port with transport,
+     *   handling each request on a virtual thread if virtualThreads is true and this Java runtime has them (Java 21 or later), 
+     *   or else on a pool of platform threads
+     * 
+     * @param catalog the puzzles that can be played, shared with the caller
+     * @param port server port number
+     * @param virtualThreads true to handle requests on virtual threads when available
+     * @param transport the HTTP server that accepts connections and parses requests
+     * @throws IOException if an error occurs starting the server
+     */
+    public WebServer(PuzzleCatalog catalog, int port, boolean virtualThreads, Transport transport) throws IOException {
+        this(catalog, new InetSocketAddress(port), virtualThreads, transport);
+    }
+    
+    /**
+     * Make a new web server offering the puzzles of a catalog that listens for connections on address with transport,
+     *   handling each request on a virtual thread if virtualThreads is true and this Java runtime has them (Java 21 or later), 
+     *   or else on a pool of platform threads
+     * 
+     * @param catalog the puzzles that can be played, shared with the caller
+     * @param address the address and port the server listens on, e.g. on the loopback interface only
+     * @param virtualThreads true to handle requests on virtual threads when available
+     * @param transport the HTTP server that accepts connections and parses requests
+     * @throws IOException if an error occurs starting the server
+     */
+    public WebServer(PuzzleCatalog catalog, InetSocketAddress address, boolean virtualThreads, Transport transport) throws IOException {
+        this.server = transport == Transport.NIO ? NioHttpServer.create(address, BACKLOG) : HttpServer.create(address, BACKLOG);
+        this.catalog = catalog;
         
-        this.playerToGameID = new HashMap<>();
-        this.gameIDToPlayers = new HashMap<>();
-        this.gameIDToPuzzle = new HashMap<>();
-        this.lastGameID = -1;
+        this.playerToGameID = new ConcurrentHashMap<>();
+        this.gameIDToPlayers = new ConcurrentHashMap<>();
+        this.gameIDToPuzzle = new ConcurrentHashMap<>();
+        this.lastGameID = new AtomicInteger(-1);
+        this.waitingWatchers = new AtomicInteger(0);
         
         // handle concurrent requests with multiple threads
-        server.setExecutor(Executors.newCachedThreadPool());
+        this.executor = makeExecutor(virtualThreads);
+        server.setExecutor(this.executor);
         
         HeadersFilter headers = new HeadersFilter(Map.of(
                 // allow requests from web pages hosted anywhere
@@ -115,6 +203,15 @@ public class WebServer {
         HttpContext guess = server.createContext("/guess/", this::handleGuess);
         guess.getFilters().addAll(filters);
         
+        HttpContext guessBatch = server.createContext("/guessBatch/", this::handleGuessBatch);
+        guessBatch.getFilters().addAll(filters);
+        
+        HttpContext setCell = server.createContext("/setCell/", this::handleSetCell);
+        setCell.getFilters().addAll(filters);
+        
+        HttpContext clearCell = server.createContext("/clearCell/", this::handleClearCell);
+        clearCell.getFilters().addAll(filters);
+        
         HttpContext erase = server.createContext("/erase/", this::handleErase);
         erase.getFilters().addAll(filters);
         
@@ -126,6 +223,9 @@ public class WebServer {
         
         HttpContext watchGame = server.createContext("/watchGame/", this::handleWatchGame);
         watchGame.getFilters().addAll(filters);
+        
+        HttpContext streamGame = server.createContext("/streamGame/", this::handleStreamGame);
+        streamGame.getFilters().addAll(filters);
     }
     
     /**
@@ -149,24 +249,49 @@ public class WebServer {
     public void stop() {
         System.err.println("Server will stop");
         server.stop(0);
+        // interrupts the handlers still running; the callbacks of watchers still waiting for a change never run
+        executor.shutdownNow();
     }
     
-    
-    private void checkRep() {
-        assert gameIDToPuzzle.keySet().equals(gameIDToPlayers.keySet());
-        
-        for (String gameID : gameIDToPlayers.keySet()) {
-            for (String playerID : gameIDToPlayers.get(gameID)) {
-                assert gameID.equals(playerToGameID.get(playerID));
+    /**
+     * @param virtualThreads true to run each task on a new virtual thread when this Java runtime has them
+     * @return an executor for the handlers of requests
+     */
+    private static ExecutorService makeExecutor(boolean virtualThreads) {
+        if (virtualThreads) {
+            // looked up reflectively so that the server still compiles and runs on Java 17
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Virtual threads need Java 21 or later, handling requests on platform threads");
             }
         }
-        
-        Set<Integer> allGameIDs = new HashSet<>();
-        for (String gameID : gameIDToPuzzle.keySet()) {
-            allGameIDs.add(Integer.parseInt(gameID));            
+        return Executors.newCachedThreadPool();
+    }
+    
+    
+    // runs on every request and takes registryLock, so it can be turned off with RepChecks
+    private void checkRep() {
+        if (!RepChecks.hotChecksEnabled()) {
+            return;
         }
-        if (!allGameIDs.isEmpty()) {
-            assert lastGameID >= Collections.max(allGameIDs);
+        synchronized (registryLock) {
+            assert gameIDToPuzzle.keySet().equals(gameIDToPlayers.keySet());
+            
+            for (String gameID : gameIDToPlayers.keySet()) {
+                for (String playerID : gameIDToPlayers.get(gameID)) {
+                    assert gameID.equals(playerToGameID.get(playerID));
+                }
+            }
+            
+            Set<Integer> allGameIDs = new HashSet<>();
+            for (String gameID : gameIDToPuzzle.keySet()) {
+                allGameIDs.add(Integer.parseInt(gameID));            
+            }
+            if (!allGameIDs.isEmpty()) {
+                assert lastGameID.get() >= Collections.max(allGameIDs);
+            }
+            assert waitingWatchers.get() >= 0;
         }
     }
 
@@ -190,10 +315,8 @@ public class WebServer {
         if (playerID.matches("\\w+")) {
             exchange.sendResponseHeaders(SUCCESS, 0);
             
-            synchronized (lock) {
-                for (String puzzleName : puzzleNameToPuzzle.keySet()) {
-                    response += puzzleName + ",";
-                }
+            for (String puzzleName : catalog.getPuzzleNames()) {
+                response += puzzleName + ",";
             }
 
         } else {
@@ -233,41 +356,32 @@ public class WebServer {
             final String playerID = playerAndPuzzleName[0];
             final String puzzleName = playerAndPuzzleName[1];
             
-            synchronized (lock) {
-                if (puzzleNameToPuzzleDirectory.containsKey(puzzleName) && playerID.matches("\\w+")) {
-                    exchange.sendResponseHeaders(SUCCESS, 0);
-                    
-                    // Parses a puzzle from available puzzle directories
-                    final Puzzle currentPuzzle = Puzzle.parseFromFile(puzzleNameToPuzzleDirectory.get(puzzleName));
-                    final int gameID = lastGameID + 1;
-                    
-                    // Adjusts players if they're already in another game
-                    for (String otherGameID : gameIDToPlayers.keySet()) {
-                        if (gameIDToPlayers.get(otherGameID).contains(playerID)) {
-                            gameIDToPlayers.get(otherGameID).remove(playerID);
-                        }
-                    }                
+            // a lazy catalog may parse the puzzle here, outside of any lock of this server
+            final Optional<PuzzleTemplate> template = playerID.matches("\\w+") ? catalog.getTemplate(puzzleName) : Optional.empty();
+            if (template.isPresent()) {
+                // new games share the template of their puzzle, and only allocate their own guesses
+                final Puzzle currentPuzzle = new Puzzle(template.get());
+                final String gameID = "" + lastGameID.incrementAndGet();
+                
+                synchronized (registryLock) {
+                    leaveCurrentGame(playerID);
                     
-                    playerToGameID.put(playerID, "" + gameID);
-                    gameIDToPlayers.put("" + gameID, new HashSet<>());
-                    gameIDToPlayers.get("" + gameID).add(playerID);
-                    gameIDToPuzzle.put("" + gameID, currentPuzzle);
-                    lastGameID += 1;
+                    final Set<String> players = ConcurrentHashMap.newKeySet();
+                    players.add(playerID);
+                    gameIDToPlayers.put(gameID, players);
+                    gameIDToPuzzle.put(gameID, currentPuzzle);
+                    playerToGameID.put(playerID, gameID);
                     
                     currentPuzzle.addPlayer(playerID);
-                    
-                    String allPlayersString = "";
-                    for (String player: gameIDToPlayers.get("" + gameID)) {
-                        allPlayersString += player + ",";
-                    }
-                    
-                    response = currentPuzzle.makeClientString() + "|" + allPlayersString; 
-                    
-                } else {
-                    exchange.sendResponseHeaders(ERROR, 0);
-                    response = "Not a valid puzzle or not a puzzle in the puzzles directory";
                 }
-            }            
+                
+                response = makeGameString(currentPuzzle); 
+                exchange.sendResponseHeaders(SUCCESS, 0);
+                
+            } else {
+                exchange.sendResponseHeaders(ERROR, 0);
+                response = "Not a valid puzzle or not a puzzle in the puzzles directory";
+            }
             
             
         } else {
@@ -304,13 +418,10 @@ public class WebServer {
         if (playerID.matches("\\w+")) {
             exchange.sendResponseHeaders(SUCCESS, 0);
             
-            synchronized (lock) {
-                for (String gameID : gameIDToPlayers.keySet()) {
-                    response += gameID + ",";
-                }
+            for (String gameID : gameIDToPlayers.keySet()) {
+                response += gameID + ",";
             }
             
-            
         } else {
             exchange.sendResponseHeaders(ERROR, 0);
             response = "Game creation must include a valid playerID";
@@ -347,33 +458,23 @@ public class WebServer {
             final String playerID = playerAndGameID[0];
             final String gameID = playerAndGameID[1];       
             
-            synchronized (lock) {
-                if (playerID.matches("\\w+") && gameIDToPuzzle.containsKey(gameID)) {
-                    exchange.sendResponseHeaders(SUCCESS, 0);
-                    
-                    final Puzzle currentPuzzle = gameIDToPuzzle.get(gameID);
+            final Puzzle currentPuzzle = gameIDToPuzzle.get(gameID);
+            if (playerID.matches("\\w+") && currentPuzzle != null) {
+                synchronized (registryLock) {
+                    leaveCurrentGame(playerID);
                     
-                    for (String otherGameID : gameIDToPlayers.keySet()) {
-                        if (gameIDToPlayers.get(otherGameID).contains(playerID)) {
-                            gameIDToPlayers.get(otherGameID).remove(playerID);
-                        }
-                    }                
-                    
-                    playerToGameID.put(playerID, "" + gameID);
-                    gameIDToPlayers.get("" + gameID).add(playerID);
-                    
-                    currentPuzzle.addPlayer(playerID);                   
-                    String allPlayersString = "";
-                    for (String player: gameIDToPlayers.get(gameID)) {
-                        allPlayersString += player + ",";
-                    }
+                    gameIDToPlayers.get(gameID).add(playerID);
+                    playerToGameID.put(playerID, gameID);
                     
-                    response = currentPuzzle.makeClientString() + "|" + allPlayersString;                
-                } else {
-                    exchange.sendResponseHeaders(ERROR, 0);
-                    response = "Not a valid puzzle or not a puzzle in the puzzles directory";
+                    currentPuzzle.addPlayer(playerID);
                 }
-            }            
+                
+                response = makeGameString(currentPuzzle);
+                exchange.sendResponseHeaders(SUCCESS, 0);
+            } else {
+                exchange.sendResponseHeaders(ERROR, 0);
+                response = "Not a valid puzzle or not a puzzle in the puzzles directory";
+            }
             
         } else {
             exchange.sendResponseHeaders(ERROR, 0);
@@ -405,31 +506,30 @@ public class WebServer {
         final String playerID = path.substring(base.length());        
         String response = "";
                
-        synchronized (lock) {
-            if (playerID.matches("\\w+") && playerToGameID.containsKey(playerID)) {
-                exchange.sendResponseHeaders(SUCCESS, 0);
-                
-                final String currentGameID = playerToGameID.get(playerID);
-                
-                playerToGameID.remove(playerID);
+        final boolean exited;
+        synchronized (registryLock) {
+            exited = playerID.matches("\\w+") && playerToGameID.containsKey(playerID);
+            if (exited) {
+                final String currentGameID = playerToGameID.remove(playerID);
                 gameIDToPlayers.get(currentGameID).remove(playerID);
                 
-                final Puzzle currentPuzzle = gameIDToPuzzle.get(currentGameID);
-                
-                currentPuzzle.removePlayer(playerID);
-                synchronized (currentPuzzle) {currentPuzzle.notifyAll();}
+                // removing the player wakes up everyone watching the game
+                gameIDToPuzzle.get(currentGameID).removePlayer(playerID);
                 
                 // remove game if it is empty
 //                if (gameIDToPlayers.get(currentGameID).isEmpty()) {
 //                    gameIDToPlayers.remove(currentGameID);
 //                    gameIDToPuzzle.remove(currentGameID);
 //                }
-                
-            } else {
-                exchange.sendResponseHeaders(ERROR, 0);
-                response = "Not a valid request: invalid playerID or player not in the current game";
             }
-        }        
+        }
+        
+        if (exited) {
+            exchange.sendResponseHeaders(SUCCESS, 0);
+        } else {
+            exchange.sendResponseHeaders(ERROR, 0);
+            response = "Not a valid request: invalid playerID or player not in the current game";
+        }
         
         OutputStream body = exchange.getResponseBody();
         PrintWriter out = new PrintWriter (new OutputStreamWriter(body, UTF_8), true);
@@ -465,21 +565,21 @@ public class WebServer {
             final String index = guessContent[1];
             final String guess = guessContent[2];
             
-            synchronized (lock) {
-                if (playerToGameID.containsKey(playerID) && index.matches("\\d+") && guess.matches("[A-Za-z]+") ) {
-                    exchange.sendResponseHeaders(SUCCESS, 0);
-                    String currentGameID = playerToGameID.get(playerID);
-                    Puzzle currentPuzzle = gameIDToPuzzle.get(currentGameID);
+            final Optional<Puzzle> currentPuzzle = getCurrentPuzzle(playerID);
+            if (currentPuzzle.isPresent() && index.matches("\\d+") && guess.matches("[A-Za-z]+") ) {
+                synchronized (currentPuzzle.get()) {
                     try {
-                        currentPuzzle.guessWord(Integer.parseInt(index), guess);
+                        currentPuzzle.get().guessWord(Integer.parseInt(index), guess);
                     } catch (IllegalArgumentException e) {
                          errorMessage = "Please enter a valid index for your guess and a word with the correct length for that index";
                     }
-                    response = currentPuzzle.makeClientString() + "|" + errorMessage;
-                } else {
-                    exchange.sendResponseHeaders(ERROR, 0);
-                    response = "Player " + playerID + " is not currently in any puzzle games";
+                    response = currentPuzzle.get().makeClientString() + "|" + errorMessage;
                 }
+                // the guess is applied before the player sees a response, so their next request comes after it
+                exchange.sendResponseHeaders(SUCCESS, 0);
+            } else {
+                exchange.sendResponseHeaders(ERROR, 0);
+                response = "Player " + playerID + " is not currently in any puzzle games";
             }
             
         } else {
@@ -497,6 +597,171 @@ public class WebServer {
         checkRep();
     }
     
+    /**
+     * Handle a request for /guessBatch/<playerID>, whose body lists guesses and erases one per line ("guess INDEX GUESS" or "erase INDEX"),
+     * by applying them all at once to the current puzzle the <playerID> is on (see Puzzle.applyGuesses): the game changes, and its 
+     * watchers are woken up, only once for the whole batch. If any operation is not valid for the puzzle, none is applied
+     * 
+     * @param exchange HTTP request/response, modified by this method to send a
+     *                 response to the client and close the exchange
+     * @throws IOException if there is an error reading the request or sending the response
+     */
+    private void handleGuessBatch(HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        
+        final String playerID = path.substring(base.length());
+        final Optional<List<EntryGuess>> guesses = parseGuessBatch(new String(exchange.getRequestBody().readAllBytes(), UTF_8));
+        final String response;
+        String errorMessage = "";
+        
+        final Optional<Puzzle> currentPuzzle = getCurrentPuzzle(playerID);
+        if (currentPuzzle.isPresent() && guesses.isPresent()) {
+            synchronized (currentPuzzle.get()) {
+                try {
+                    currentPuzzle.get().applyGuesses(guesses.get());
+                } catch (IllegalArgumentException e) {
+                    errorMessage = "No guess was applied: every index must be valid and every guess must have the correct length for its index";
+                }
+                response = currentPuzzle.get().makeClientString() + "|" + errorMessage;
+            }
+            // the batch is applied before the player sees a response, so their next request comes after it
+            exchange.sendResponseHeaders(SUCCESS, 0);
+        } else if (currentPuzzle.isEmpty()) {
+            exchange.sendResponseHeaders(ERROR, 0);
+            response = "Player " + playerID + " is not currently in any puzzle games";
+        } else {
+            exchange.sendResponseHeaders(ERROR, 0);
+            response = "Not a valid call: each line of the body must be \"guess INDEX GUESS\" or \"erase INDEX\"";
+        }
+        
+        // writes response to the output stream using UTF-8 character encoding
+        OutputStream body = exchange.getResponseBody();
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+        out.println(response);
+        out.flush();
+        
+        exchange.close();
+        checkRep();
+    }
+    
+    /**
+     * Parse the body of a /guessBatch request
+     * 
+     * @param body lines of the form "guess INDEX GUESS" or "erase INDEX", where INDEX is a number and GUESS is a word of letters;
+     *             blank lines are ignored
+     * @return the operations of body in order, or empty if a line is not of either form
+     */
+    private static Optional<List<EntryGuess>> parseGuessBatch(String body) {
+        final List<EntryGuess> guesses = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            final String[] words = line.trim().split(" ");
+            if (words.length == 3 && words[0].equals("guess") && words[1].matches("\\d{1,9}") && words[2].matches("[A-Za-z]+")) {
+                guesses.add(EntryGuess.guess(Integer.parseInt(words[1]), words[2]));
+            } else if (words.length == 2 && words[0].equals("erase") && words[1].matches("\\d{1,9}")) {
+                guesses.add(EntryGuess.erase(Integer.parseInt(words[1])));
+            } else {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(guesses);
+    }
+    
+    /**
+     * Handle a request for /setCell/<playerID>/row/col/letter by guessing letter in a single cell of the current puzzle
+     * the <playerID> is on (see Puzzle.setCell)
+     * 
+     * @param exchange HTTP request/response, modified by this method to send a
+     *                 response to the client and close the exchange
+     * @throws IOException if there is an error starting the server/sending response back to server                         
+     */
+    private void handleSetCell(HttpExchange exchange) throws IOException {
+        handleCellChange(exchange, true);
+    }
+    
+    /**
+     * Handle a request for /clearCell/<playerID>/row/col by erasing the guessed letter of a single cell of the current puzzle
+     * the <playerID> is on (see Puzzle.clearCell)
+     * 
+     * @param exchange HTTP request/response, modified by this method to send a
+     *                 response to the client and close the exchange
+     * @throws IOException if there is an error starting the server/sending response back to server                         
+     */
+    private void handleClearCell(HttpExchange exchange) throws IOException {
+        handleCellChange(exchange, false);
+    }
+    
+    /**
+     * Handle a request to change a single cell, for /setCell/<playerID>/row/col/letter or /clearCell/<playerID>/row/col.
+     * Only the entries passing through the cell change, so instead of the whole puzzle the response carries the delta of those entries 
+     * from the version before the change (see Puzzle.makeClientCellDeltaString), followed by its version and an error message, if any.
+     * 
+     * @param exchange HTTP request/response, modified by this method to send a
+     *                 response to the client and close the exchange
+     * @param set true to set the letter of the cell, false to clear it
+     * @throws IOException if there is an error starting the server/sending response back to server                         
+     */
+    private void handleCellChange(HttpExchange exchange, boolean set) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        
+        final String[] cellContent = path.substring(base.length()).split("/");
+        final String response;
+        String errorMessage = "";
+        if (cellContent.length == (set ? 4 : 3) && cellContent[1].matches("\\d{1,9}") && cellContent[2].matches("\\d{1,9}")
+                && (!set || cellContent[3].matches("[A-Za-z]"))) {
+            final String playerID = cellContent[0];
+            final int row = Integer.parseInt(cellContent[1]);
+            final int col = Integer.parseInt(cellContent[2]);
+            
+            final Optional<Puzzle> currentPuzzle = getCurrentPuzzle(playerID);
+            if (currentPuzzle.isPresent()) {
+                synchronized (currentPuzzle.get()) {
+                    final long version = currentPuzzle.get().getVersion();
+                    String delta;
+                    try {
+                        if (set) {
+                            currentPuzzle.get().setCell(row, col, cellContent[3].charAt(0));
+                        } else {
+                            currentPuzzle.get().clearCell(row, col);
+                        }
+                        delta = currentPuzzle.get().makeClientCellDeltaString(row, col, version);
+                    } catch (IllegalArgumentException e) {
+                        errorMessage = "Please enter a row and column of a cell that belongs to an entry";
+                        delta = currentPuzzle.get().makeClientDeltaString(version);
+                    }
+                    response = delta + "|" + currentPuzzle.get().getVersion() + "|" + errorMessage;
+                }
+                // the change is applied before the player sees a response, so their next request comes after it
+                exchange.sendResponseHeaders(SUCCESS, 0);
+            } else {
+                exchange.sendResponseHeaders(ERROR, 0);
+                response = "Player " + playerID + " is not currently in any puzzle games";
+            }
+            
+        } else {
+            exchange.sendResponseHeaders(ERROR, 0);
+            response = set ? "Not a valid call: must include a playerID, a row, a column, and a letter"
+                           : "Not a valid call: must include a playerID, a row, and a column";
+        }
+        
+        // writes response to the output stream using UTF-8 character encoding
+        OutputStream body = exchange.getResponseBody();
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(body, UTF_8), true);
+        out.println(response);
+        out.flush();
+        
+        exchange.close();
+        checkRep();
+    }
+    
     /**
      * Handle a request for /erase/<playerID>/index by erasing the current guess for the 
      * current puzzle the <playerID> is on. Index is the canvas entry that is being removed
@@ -519,21 +784,21 @@ public class WebServer {
             final String playerID = guessContent[0];
             final String index = guessContent[1];
             
-            synchronized (lock) {
-                if (playerToGameID.containsKey(playerID) && index.matches("\\d+")) {
-                    exchange.sendResponseHeaders(SUCCESS, 0);
-                    String currentGameID = playerToGameID.get(playerID);
-                    Puzzle currentPuzzle = gameIDToPuzzle.get(currentGameID);
+            final Optional<Puzzle> currentPuzzle = getCurrentPuzzle(playerID);
+            if (currentPuzzle.isPresent() && index.matches("\\d+")) {
+                synchronized (currentPuzzle.get()) {
                     try {
-                        currentPuzzle.eraseWord(Integer.parseInt(index));
+                        currentPuzzle.get().eraseWord(Integer.parseInt(index));
                     } catch (IllegalArgumentException e) {
                         errorMessage = "Please enter a valid index to erase from";
                     }
-                    response = currentPuzzle.makeClientString() + "|" + errorMessage;
-                } else {
-                    exchange.sendResponseHeaders(ERROR, 0);
-                    response = "Player " + playerID + " is not currently in any puzzle games";
+                    response = currentPuzzle.get().makeClientString() + "|" + errorMessage;
                 }
+                // the erase is applied before the player sees a response, so their next request comes after it
+                exchange.sendResponseHeaders(SUCCESS, 0);
+            } else {
+                exchange.sendResponseHeaders(ERROR, 0);
+                response = "Player " + playerID + " is not currently in any puzzle games";
             }
             
         } else {
@@ -570,18 +835,17 @@ public class WebServer {
 
         final String response;
         
-        synchronized (lock) {
-            if (playerToGameID.containsKey(playerID)) {
-                exchange.sendResponseHeaders(SUCCESS, 0);
-                String currentGameID = playerToGameID.get(playerID);
-                Puzzle currentPuzzle = gameIDToPuzzle.get(currentGameID);
-                currentPuzzle.check();
-                final String isComplete = String.valueOf(currentPuzzle.getIsComplete());
-                response = currentPuzzle.makeClientString() + "|" + isComplete;
-            } else {
-                exchange.sendResponseHeaders(ERROR, 0);
-                response = "Not a valid call: must include a playerID";
+        final Optional<Puzzle> currentPuzzle = getCurrentPuzzle(playerID);
+        if (currentPuzzle.isPresent()) {
+            synchronized (currentPuzzle.get()) {
+                currentPuzzle.get().check();
+                final String isComplete = String.valueOf(currentPuzzle.get().getIsComplete());
+                response = currentPuzzle.get().makeClientString() + "|" + isComplete;
             }
+            exchange.sendResponseHeaders(SUCCESS, 0);
+        } else {
+            exchange.sendResponseHeaders(ERROR, 0);
+            response = "Not a valid call: must include a playerID";
         }
               
         
@@ -598,8 +862,14 @@ public class WebServer {
     
     
     /**
-     * Handle a request for /watch/<playerID> by notifying the player when the state of the game changes.
-     *    This request will block until a change occurs in the game state.
+     * Handle a request for /watchGame/<playerID>?since=<version>&delta=<true|false> by notifying the player when the state of the game changes.
+     *    The response is not sent until the version of the game state is greater than version, so a client that missed 
+     *    an update gets a response immediately. If since is omitted, it is sent after the next change of the game state.
+     *    If since is greater than the current version of the game (e.g. it belongs to another game), the response is sent
+     *    immediately with the current state, so the client can resynchronize. The response headers are sent at once, and
+     *    the body is written by a callback when the game changes, so a waiting request holds no thread.
+     *    If delta is true and since is a version of the game, the response carries only the guesses and players that changed 
+     *    after version (see Puzzle.makeClientDeltaString); otherwise it carries a full snapshot of the game.
      * 
      * @param exchange HTTP request/response, modified by this method to send a
      *                 response to the client and close the exchange
@@ -611,38 +881,28 @@ public class WebServer {
         assert path.startsWith(base);
         
         final String playerID = path.substring(base.length());       
+        final Optional<String> since = getQueryParameter(exchange, "since");
+        final boolean delta = getQueryParameter(exchange, "delta").orElse("false").equals("true");
         
         String response;
         
-        final boolean playerInGame;
-        synchronized (lock) {playerInGame = playerToGameID.containsKey(playerID);}
+        final Optional<Puzzle> playerPuzzle = getCurrentPuzzle(playerID);
         
-        if (playerID.matches("\\w+") && playerInGame) {
+        if (playerID.matches("\\w+") && playerPuzzle.isPresent() && (since.isEmpty() || since.get().matches("\\d{1,18}"))) {
             exchange.sendResponseHeaders(SUCCESS, 0);
-            final String gameID;
-            final Puzzle currentPuzzle;
+            final Puzzle currentPuzzle = playerPuzzle.get();
+            final long currentVersion = currentPuzzle.getVersion();
+            final long sinceVersion = since.isPresent() ? Long.parseLong(since.get()) : currentVersion;
             
-            synchronized (lock) {
-                gameID = playerToGameID.get(playerID);
-                currentPuzzle = gameIDToPuzzle.get(gameID);
-            }
-            final String previousClientString = currentPuzzle.makeClientString();            
-            final Set<String> previousPlayerSet = currentPuzzle.getPlayers();
-            final boolean isComplete = currentPuzzle.getIsComplete();
-                        
-            synchronized (currentPuzzle) {
-                while (previousClientString.equals(currentPuzzle.makeClientString()) && previousPlayerSet.equals(currentPuzzle.getPlayers()) && isComplete == currentPuzzle.getIsComplete()) {
-                    try {
-                        currentPuzzle.wait();
-                    } catch (Exception e) {}
-                }                
-                String allPlayersString = "";
-                for (String player: currentPuzzle.getPlayers()) {
-                    allPlayersString += player + ",";
-                }
-                
-                response = currentPuzzle.makeClientString() + "|" + allPlayersString + "|" + currentPuzzle.getIsComplete(); 
+            final boolean sendDelta = delta && since.isPresent() && sinceVersion <= currentVersion;
+            
+            // a version from the future cannot be waited for, so the client gets the current state to resynchronize
+            if (sinceVersion <= currentVersion) {
+                // the response is finished by a callback once the game changes, so no thread waits for it
+                whenChanged(currentPuzzle, sinceVersion, () -> finishWatch(exchange, currentPuzzle, sinceVersion, sendDelta));
+                return;
             }
+            response = makeWatchResponse(currentPuzzle, sinceVersion, sendDelta);
             
         } 
         else {
@@ -657,6 +917,246 @@ public class WebServer {
         exchange.close();
         checkRep();
     }
+    
+    /**
+     * Handle a request for /streamGame/<playerID>?since=<version> by streaming the state of the player's game as server-sent events,
+     *    one event for each new state of the game, on a single response that stays open while the player is in the game.
+     *    The stream starts with a full snapshot of the game, unless since (or the Last-Event-ID header a client sends when it 
+     *    reconnects) is a version of the game, in which case it starts with the changes after that version. Each later event 
+     *    carries the changes since the previous one, so changes made while an event is being written are coalesced into the next.
+     *    The data of every event is the response /watchGame/<playerID> would give for the same versions, and its id is the version of the game.
+     *    The stream ends after the event in which the player is no longer one of the players of the game.
+     * 
+     * @param exchange HTTP request/response, modified by this method to stream events to the client and close the exchange
+     * @throws IOException if there is an error sending the response headers
+     */
+    private void handleStreamGame(HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        final String base = exchange.getHttpContext().getPath();
+        assert path.startsWith(base);
+        
+        final String playerID = path.substring(base.length());
+        final Optional<String> since = getQueryParameter(exchange, "since")
+                .or(() -> Optional.ofNullable(exchange.getRequestHeaders().getFirst("Last-Event-ID")));
+        final Optional<Puzzle> playerPuzzle = getCurrentPuzzle(playerID);
+        
+        if (!(playerID.matches("\\w+") && playerPuzzle.isPresent() && (since.isEmpty() || since.get().matches("\\d{1,18}")))) {
+            exchange.sendResponseHeaders(ERROR, 0);
+            final PrintWriter out = new PrintWriter(new OutputStreamWriter(exchange.getResponseBody(), UTF_8), true);
+            out.println("Cannot stream, not part of any game");
+            exchange.close();
+            checkRep();
+            return;
+        }
+        
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(SUCCESS, 0);
+        final Puzzle currentPuzzle = playerPuzzle.get();
+        final long sentVersion;
+        if (since.isPresent() && Long.parseLong(since.get()) <= currentPuzzle.getVersion()) {
+            sentVersion = Long.parseLong(since.get());
+        } else {
+            try {
+                sentVersion = writeEvent(exchange.getResponseBody(), currentPuzzle, 0, false);
+            } catch (IOException e) {
+                // the client closed the stream
+                exchange.close();
+                return;
+            }
+        }
+        streamChanges(exchange, currentPuzzle, playerID, sentVersion);
+    }
+    
+    /**
+     * Finish a /watchGame response with the state of a game
+     * 
+     * @param exchange HTTP request/response whose headers were sent, modified by this method to send the body and close the exchange
+     * @param puzzle puzzle of the game
+     * @param sinceVersion a version of puzzle
+     * @param delta true to send only the changes after sinceVersion, false for a full snapshot
+     */
+    private void finishWatch(HttpExchange exchange, Puzzle puzzle, long sinceVersion, boolean delta) {
+        final PrintWriter out = new PrintWriter(new OutputStreamWriter(exchange.getResponseBody(), UTF_8), true);
+        out.println(makeWatchResponse(puzzle, sinceVersion, delta));
+        exchange.close();
+        checkRep();
+    }
+    
+    /**
+     * Send the next event of a /streamGame response once its game changes, and so on until the player is no longer in the game
+     *    or the client closes the stream, then close the exchange
+     * 
+     * @param exchange HTTP request/response streaming events
+     * @param puzzle puzzle of the game
+     * @param playerID the player watching the game
+     * @param sentVersion version of puzzle described by the last event sent
+     */
+    private void streamChanges(HttpExchange exchange, Puzzle puzzle, String playerID, long sentVersion) {
+        if (puzzle != getCurrentPuzzle(playerID).orElse(null)) {
+            // the player left after the last event was made, so the client has not seen it yet: the last event shows it
+            if (puzzle.getVersion() > sentVersion) {
+                try {
+                    writeEvent(exchange.getResponseBody(), puzzle, sentVersion, true);
+                } catch (IOException e) {
+                    // the client closed the stream
+                }
+            }
+            exchange.close();
+            checkRep();
+            return;
+        }
+        whenChanged(puzzle, sentVersion, () -> {
+            final long version;
+            try {
+                version = writeEvent(exchange.getResponseBody(), puzzle, sentVersion, true);
+            } catch (IOException e) {
+                // the client closed the stream
+                exchange.close();
+                return;
+            }
+            streamChanges(exchange, puzzle, playerID, version);
+        });
+    }
+    
+    /**
+     * Write one server-sent event with the state of a game
+     * 
+     * @param body the stream of events
+     * @param puzzle puzzle of the game
+     * @param sinceVersion a version of puzzle
+     * @param delta true to send only the changes after sinceVersion, false for a full snapshot
+     * @return the version of puzzle described by the event
+     * @throws IOException if the event cannot be written
+     */
+    private static long writeEvent(OutputStream body, Puzzle puzzle, long sinceVersion, boolean delta) throws IOException {
+        final String response = makeWatchResponse(puzzle, sinceVersion, delta);
+        final String version = response.substring(response.lastIndexOf('|') + 1);
+        final StringBuilder event = new StringBuilder("id: ").append(version).append('\n');
+        for (String line : response.split("\n")) {
+            event.append("data: ").append(line).append('\n');
+        }
+        event.append('\n');
+        // one write per event, so each update costs a single chunk on the wire
+        body.write(event.toString().getBytes(UTF_8));
+        body.flush();
+        return Long.parseLong(version);
+    }
+    
+    /**
+     * Run a task on the executor once the version of a game is greater than version, counting it as a waiting watcher until then.
+     *    No thread waits for the change: the task is a callback of Puzzle.versionAfter
+     * 
+     * @param puzzle puzzle of the game
+     * @param version a version of puzzle
+     * @param task to run after the change; it never runs if the server stops first
+     */
+    private void whenChanged(Puzzle puzzle, long version, Runnable task) {
+        waitingWatchers.incrementAndGet();
+        puzzle.versionAfter(version)
+              .whenComplete((changedVersion, e) -> waitingWatchers.decrementAndGet())
+              // not run by the thread that changed the game, which is holding the lock of puzzle
+              .thenRunAsync(task, executor);
+    }
+    
+    /**
+     * Make the response to a watcher of a game, from a consistent snapshot of the game
+     * 
+     * @param puzzle puzzle of the game
+     * @param sinceVersion a version of puzzle
+     * @param delta true to describe only the changes after sinceVersion, false for a full snapshot
+     * @return the minimal client string of puzzle, or its delta since sinceVersion, then its players ("=" in a delta if they did not change),
+     *         whether it is complete, and its version, separated by "|"
+     */
+    private static String makeWatchResponse(Puzzle puzzle, long sinceVersion, boolean delta) {
+        synchronized (puzzle) {
+            final String allPlayersString = makePlayersString(puzzle);
+            if (delta) {
+                // players are only sent if they changed, "=" tells the client to keep its list
+                final String playersString = puzzle.playersChangedAfter(sinceVersion) ? allPlayersString : "=";
+                return puzzle.makeClientDeltaString(sinceVersion) + "|" + playersString + "|" + puzzle.getIsComplete() + "|" + puzzle.getVersion();
+            }
+            return puzzle.makeClientString() + "|" + allPlayersString + "|" + puzzle.getIsComplete() + "|" + puzzle.getVersion();
+        }
+    }
+    
+    /**
+     * Remove a player from the players of the game they are currently in, if any.
+     * Must be called while holding registryLock.
+     * 
+     * @param playerID player to remove
+     */
+    private void leaveCurrentGame(String playerID) {
+        assert Thread.holdsLock(registryLock);
+        final String otherGameID = playerToGameID.get(playerID);
+        if (otherGameID != null) {
+            gameIDToPlayers.get(otherGameID).remove(playerID);
+        }
+    }
+    
+    /**
+     * Get the puzzle of the game a player is currently in
+     * 
+     * @param playerID player
+     * @return the puzzle of the game playerID is in, or empty if they are not in any game
+     */
+    private Optional<Puzzle> getCurrentPuzzle(String playerID) {
+        final String gameID = playerToGameID.get(playerID);
+        return gameID == null ? Optional.empty() : Optional.ofNullable(gameIDToPuzzle.get(gameID));
+    }
+    
+    /**
+     * @param puzzle puzzle of a game
+     * @return the player id's of the players of puzzle, each followed by a comma
+     */
+    private static String makePlayersString(Puzzle puzzle) {
+        String allPlayersString = "";
+        for (String player: puzzle.getPlayers()) {
+            allPlayersString += player + ",";
+        }
+        return allPlayersString;
+    }
+    
+    /**
+     * Make the response to a player creating or joining a game, from a consistent snapshot of the game
+     * 
+     * @param puzzle puzzle of the game
+     * @return the client string of puzzle, its players and its version, separated by "|"
+     */
+    private static String makeGameString(Puzzle puzzle) {
+        synchronized (puzzle) {
+            return puzzle.makeClientString() + "|" + makePlayersString(puzzle) + "|" + puzzle.getVersion();
+        }
+    }
+    
+    /**
+     * Get the value of a parameter in the query string of a request
+     * 
+     * @param exchange HTTP request
+     * @param name the name of the parameter
+     * @return the value of the first parameter called name in the query string of the request, or empty if there is none
+     */
+    private static Optional<String> getQueryParameter(HttpExchange exchange, String name) {
+        final String query = exchange.getRequestURI().getQuery();
+        if (query == null) {
+            return Optional.empty();
+        }
+        for (String parameter : query.split("&")) {
+            final String[] nameAndValue = parameter.split("=", 2);
+            if (nameAndValue[0].equals(name)) {
+                return Optional.of(nameAndValue.length == 2 ? nameAndValue[1] : "");
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * @return the number of /watchGame requests currently waiting for a change of their game, for testing purposes
+     */
+    public int getWaitingWatcherCount() {
+        return waitingWatchers.get();
+    }
+    
     /**
      * Creates a deep copy of getPlayerToGameID for testing purposes.
      * @return a deep copy of getPlayerToGameID
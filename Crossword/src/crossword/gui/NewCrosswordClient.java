@@ -10,11 +10,19 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.swing.JButton;
@@ -23,6 +31,7 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 
 import crossword.MinimalPuzzle;
@@ -50,6 +59,12 @@ public class NewCrosswordClient {
     private static final int NEW_PANE_WIDTH = 1000;
     private static final int NEW_PANE_HEIGHT = 500;
     private static final String HOSTNAME = "http://localhost:4949";
+    private static final int SUCCESS = 200;
+    // one client for every request, which keeps its connections to the server open between requests
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
     
     private static String playerID = "";
     private static Player player;
@@ -61,9 +76,12 @@ public class NewCrosswordClient {
     private static List<JComponent> puzzleGameComponents = new ArrayList<>();
     private static List<JComponent> puzzleGameMessageComponents = new ArrayList<>();
     private static String currentGameID = "";
+    private static long currentVersion = -1;
+    private static boolean needSnapshot = false;
     
-    // AF(playerID, player, allCreateGameButtons, allJoinGameButtons, createPlayerComponents, lobbyComponents, allReturnButtons, puzzleGameComponents, puzzleGameMessageComponents)
-    // -> a Client whose name (or ID) is playerID. 
+    // AF(playerID, player, allCreateGameButtons, allJoinGameButtons, createPlayerComponents, lobbyComponents, allReturnButtons, puzzleGameComponents, puzzleGameMessageComponents, currentVersion, needSnapshot)
+    // -> a Client whose name (or ID) is playerID, and who has seen the state of its current game up to version currentVersion (-1 if none),
+    //      and who must get a full snapshot of the game next if needSnapshot, because an update did not fit the puzzle it shows. 
     //      -allCreateGameButtons and allJoinGameButtons contain the buttons to create a new game from a given puzzle and to join an existing game, respectively. 
     //      -allReturnButtons contains the buttons to return to the lobby from any game. 
     //      -createPlayerComponents, lobbyComponents, puzzleGameComponents, and puzzleGameMessageComponents contain the text boxes for creating a player, entering a game from the lobby, and guessing a word in a game.
@@ -73,7 +91,11 @@ public class NewCrosswordClient {
     // - no methods return any of our fields to the client, so rep never exposed
     //
     // Thread safety:
-    // - only one client at a time, so there is a never an issue of concurrency
+    // - the components, the canvas, currentVersion and needSnapshot are only used on the Swing event thread (confinement)
+    // - button handlers never wait for the server on the Swing event thread: their requests are sent asynchronously by HTTP_CLIENT,
+    //   which is threadsafe, and the responses are shown by callbacks that run back on the Swing event thread
+    // - the thread watching a game only reads the stream of updates: it hands each update to the Swing event thread to be shown,
+    //   and asks the Swing event thread where to resume the stream, so it never touches the state shown to the player
     /**
      * Sets client to newPlayer.
      * @param newPlayer Player representing the player we are setting our client to
@@ -94,6 +116,43 @@ public class NewCrosswordClient {
         }
     }
 
+    /**
+     * Send a GET request to the server without waiting for its response
+     * @param path path and query of the request, starting with "/"
+     * @return the body of the response, with its lines joined together, completed exceptionally if the request fails 
+     *         or the server does not answer it with success
+     */
+    private static CompletableFuture<String> get(String path) {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create(HOSTNAME + path)).build();
+        return HTTP_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString(UTF_8)).thenApply(response -> {
+            if (response.statusCode() != SUCCESS) {
+                throw new CompletionException(new IOException(path + " failed with " + response.statusCode() + ": " + response.body()));
+            }
+            return response.body().lines().collect(Collectors.joining());
+        });
+    }
+    
+    /**
+     * Show the response to a request on the Swing event thread once it arrives, or print the error if the request fails
+     * @param response the body of a response, see get()
+     * @param show updates the components with the body of the response; runs on the Swing event thread
+     */
+    private static void onEventThread(CompletableFuture<String> response, Consumer<String> show) {
+        response.thenAcceptAsync(show, SwingUtilities::invokeLater).exceptionally(e -> {
+            e.printStackTrace();
+            return null;
+        });
+    }
+    
+    /**
+     * Compute a value on the Swing event thread and wait for it; must not be called on the Swing event thread
+     * @param compute computes the value; runs on the Swing event thread
+     * @return the value computed
+     */
+    private static <T> T onEventThreadAndWait(Supplier<T> compute) {
+        return CompletableFuture.supplyAsync(compute, SwingUtilities::invokeLater).join();
+    }
+    
     /**
      * Creates button to create a new game from a puzzle.
      * @param window represents the JFrame to which the canvas is held in
@@ -111,14 +170,13 @@ public class NewCrosswordClient {
         loadNewPuzzleButton.setBounds(buttonX, buttonY, GENERAL_BUTTON_WIDTH, GENERAL_BUTTON_HEIGHT);
         allCreateGameButtons.add(loadNewPuzzleButton);
         loadNewPuzzleButton.addActionListener((event) -> {
-            try {
-                final URL loadNewPuzzleURL = new URL("http://localhost:4949/createGame/" + playerID + "/" + puzzleName);
-                final InputStream input = loadNewPuzzleURL.openStream();
-                final BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8));
-                String[] response = reader.lines().collect(Collectors.joining()).split("[|]");
+            onEventThread(get("/createGame/" + playerID + "/" + puzzleName), body -> {
+                String[] response = body.split("[|]");
                 String puzzleInStringFormat = response[0];
                 String allPlayersString = response[1];
                 List<String> allActivePlayers = Arrays.asList(allPlayersString.split(","));
+                currentVersion = (response.length > 2) ? Long.parseLong(response[2]) : -1;
+                needSnapshot = false;
                 MinimalPuzzle minimalPuzzle = MinimalPuzzle.parseFromString(puzzleInStringFormat);
                 setVisibility(allCreateGameButtons, false);
                 setVisibility(allReturnButtons, false);
@@ -131,10 +189,7 @@ public class NewCrosswordClient {
                 canvas.repaint();
                 
                 new Thread(watchRunnable).start();
-                
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            });
         });
         return loadNewPuzzleButton;
     }
@@ -155,15 +210,13 @@ public class NewCrosswordClient {
         joinExistingGameButton.setBounds(buttonX, buttonY, GENERAL_BUTTON_WIDTH, GENERAL_BUTTON_HEIGHT);
         allJoinGameButtons.add(joinExistingGameButton);
         joinExistingGameButton.addActionListener((event) -> {
-            try {
-                final URL joinExistingGameURL = new URL(HOSTNAME + "/joinExistingGame/" + playerID + "/" + gameID);
-                final InputStream input = joinExistingGameURL.openStream();
-                final BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8));
-                
-                String[] response = reader.lines().collect(Collectors.joining()).split("[|]");
+            onEventThread(get("/joinExistingGame/" + playerID + "/" + gameID), body -> {
+                String[] response = body.split("[|]");
                 String puzzleInStringFormat = response[0];
                 String allPlayersString = response[1];
                 List<String> allActivePlayers = Arrays.asList(allPlayersString.split(","));
+                currentVersion = (response.length > 2) ? Long.parseLong(response[2]) : -1;
+                needSnapshot = false;
                 MinimalPuzzle minimalPuzzle = MinimalPuzzle.parseFromString(puzzleInStringFormat);
                 setVisibility(allJoinGameButtons, false);
                 setVisibility(allReturnButtons, false);
@@ -176,10 +229,7 @@ public class NewCrosswordClient {
                 canvas.repaint();
                 
                 new Thread(watchRunnable).start();
-                
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            });
         });     
         return joinExistingGameButton;
         
@@ -239,42 +289,105 @@ public class NewCrosswordClient {
         Runnable watchRunnable = new Runnable() {
             public void run() {
                 try {
-                    boolean playerInGame = true;
-                    while (playerInGame) {
-                        final URL watchGameURL = new URL(HOSTNAME + "/watchGame/" + playerID);
-                        final InputStream input = watchGameURL.openStream();
-                        final BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8));                        
-                        
-                        String[] response = reader.lines().collect(Collectors.joining()).split("[|]");
-                        String puzzleInStringFormat = response[0];
-                        String allPlayersString = "";
-                        String isComplete = "false";
-                        final int fullResponseLength = 3;
-                        if (response.length == fullResponseLength) {
-                            allPlayersString = response[1];
-                            isComplete = response[2];
-                        }
-                        List<String> allActivePlayers = Arrays.asList(allPlayersString.split(","));
-                        if (!allActivePlayers.contains(playerID)) {
-                            playerInGame = false;
-                            break;
+                    boolean reconnect = true;
+                    while (reconnect) {
+                        // one response streams every update of the game, and is only reopened if the client falls out of sync, from a
+                        // full snapshot; if the server refuses it or ends it for any other reason, the client stops watching the game
+                        final String query = onEventThreadAndWait(() -> {
+                            final String since = (currentVersion < 0 || needSnapshot) ? "" : "?since=" + currentVersion;
+                            needSnapshot = false;
+                            return since;
+                        });
+                        final HttpRequest streamGame = HttpRequest.newBuilder(URI.create(HOSTNAME + "/streamGame/" + playerID + query)).build();
+                        final HttpResponse<InputStream> response = HTTP_CLIENT.send(streamGame, HttpResponse.BodyHandlers.ofInputStream());
+                        reconnect = false;
+                        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), UTF_8))) {
+                            if (response.statusCode() != SUCCESS) {
+                                System.err.println("/streamGame failed with " + response.statusCode() + ": " + reader.lines().collect(Collectors.joining()));
+                                return;
+                            }
+                            // each server-sent event is a block of "data: " lines ended by an empty line
+                            final StringBuilder event = new StringBuilder();
+                            String line;
+                            boolean playerInGame = true;
+                            while (playerInGame && !reconnect && (line = reader.readLine()) != null) {
+                                if (line.startsWith("data: ")) {
+                                    event.append(line, "data: ".length(), line.length()).append('\n');
+                                } else if (line.isEmpty() && event.length() > 0) {
+                                    final String update = event.toString();
+                                    event.setLength(0);
+                                    // the update is shown on the Swing event thread, which owns the canvas, before the next is read
+                                    final Optional<Boolean> inGame = onEventThreadAndWait(() -> showUpdate(update));
+                                    if (inGame.isEmpty()) {
+                                        reconnect = true;
+                                    } else {
+                                        playerInGame = inGame.get();
+                                    }
+                                }
+                            }
+                            if (playerInGame && !reconnect) {
+                                System.err.println("/streamGame ended while " + playerID + " was still in the game");
+                            }
                         }
-                        
-                        MinimalPuzzle minimalPuzzle = MinimalPuzzle.parseFromString(puzzleInStringFormat);
-                        setVisibility(allJoinGameButtons, false);
-                        setVisibility(allReturnButtons, false);
-                        setVisibility(puzzleGameComponents, true);
-                        canvas.setMinimalPuzzle(Optional.of(minimalPuzzle));
-                        canvas.setActivePlayerList(allActivePlayers);
-                        
-                        if (isComplete.equals("true")) {
-                            puzzleIsCompleteLabel.setVisible(true);
-                        }
-                        canvas.repaint();
                     }
                 } catch (IOException e) {
                     e.printStackTrace();
-                }                
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            /**
+             * Show an update of the game on the canvas; must be called on the Swing event thread
+             * @param update a snapshot or delta of the game, its players, whether it is complete and its version, separated by "|"
+             * @return true if the player is still in the game, false if they left it, or empty if the update is a delta that does 
+             *         not fit the puzzle on the canvas, so a snapshot is needed
+             */
+            private Optional<Boolean> showUpdate(String update) {
+                // "\\|" takes String.split's fast path rather than compiling a regex on every update
+                String[] response = update.split("\\|");
+                String puzzleInStringFormat = response[0];
+                String allPlayersString = "";
+                String isComplete = "false";
+                final int fullResponseLength = 3;
+                final int versionedResponseLength = 4;
+                if (response.length >= fullResponseLength) {
+                    allPlayersString = response[1];
+                    isComplete = response[2];
+                }
+                final long baseVersion = currentVersion;
+                if (response.length == versionedResponseLength) {
+                    currentVersion = Long.parseLong(response[3].trim());
+                }
+                // "=" means the players did not change since baseVersion
+                List<String> allActivePlayers = allPlayersString.equals("=") ? canvas.getAllActivePlayers() : Arrays.asList(allPlayersString.split(","));
+                if (!allActivePlayers.contains(playerID)) {
+                    return Optional.of(false);
+                }
+                
+                MinimalPuzzle minimalPuzzle;
+                if (puzzleInStringFormat.startsWith("~~")) {
+                    try {
+                        minimalPuzzle = canvas.getMinimalPuzzle().applyDelta(puzzleInStringFormat, baseVersion);
+                    } catch (IllegalArgumentException e) {
+                        // the delta does not fit the puzzle on the canvas, so resynchronize with a full snapshot
+                        needSnapshot = true;
+                        return Optional.empty();
+                    }
+                } else {
+                    minimalPuzzle = MinimalPuzzle.parseFromString(puzzleInStringFormat);
+                }
+                setVisibility(allJoinGameButtons, false);
+                setVisibility(allReturnButtons, false);
+                setVisibility(puzzleGameComponents, true);
+                canvas.setMinimalPuzzle(Optional.of(minimalPuzzle));
+                canvas.setActivePlayerList(allActivePlayers);
+                
+                if (isComplete.equals("true")) {
+                    puzzleIsCompleteLabel.setVisible(true);
+                }
+                canvas.repaint();
+                return Optional.of(true);
             }
         };
         
@@ -336,11 +449,8 @@ public class NewCrosswordClient {
             setVisibility(lobbyComponents, true);
          });
         joinGameButton.addActionListener((event) -> {
-            try {
-                final URL getAllActiveGamesURL = new URL (HOSTNAME + "/getAllActiveGames/" + playerID);
-                final InputStream input = getAllActiveGamesURL.openStream();
-                final BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8));
-                String[] allGameIDs = reader.readLine().split(",");
+            onEventThread(get("/getAllActiveGames/" + playerID), body -> {
+                String[] allGameIDs = body.split(",");
                 JPanel newContentPane = new JPanel();
                 newContentPane.setLayout(null);
                 newContentPane.setBounds(NEW_PANE_START, NEW_PANE_START, NEW_PANE_WIDTH, NEW_PANE_HEIGHT);
@@ -366,17 +476,12 @@ public class NewCrosswordClient {
                 currentContentPane.revalidate(); 
                 currentContentPane.repaint();
                 window.repaint();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            });
         });
         
         createGameButton.addActionListener((event) -> {
-            try {
-                final URL getAllPuzzlesURL = new URL(HOSTNAME + "/getAllPuzzles/" + playerID );
-                final InputStream input = getAllPuzzlesURL.openStream();
-                final BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8));
-                String[] allPuzzles = reader.readLine().split(","); 
+            onEventThread(get("/getAllPuzzles/" + playerID), body -> {
+                String[] allPuzzles = body.split(","); 
                 JPanel newContentPane = new JPanel();
                 newContentPane.setLayout(null);
                 newContentPane.setBounds(NEW_PANE_START, NEW_PANE_START, NEW_PANE_WIDTH, NEW_PANE_HEIGHT);
@@ -400,9 +505,7 @@ public class NewCrosswordClient {
                 currentContentPane.revalidate(); 
                 currentContentPane.repaint();
                 window.repaint();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            });
         });
 
         
@@ -450,82 +553,57 @@ public class NewCrosswordClient {
         guessTextBox.setFont(new Font("Arial", Font.BOLD, DEFAULT_FONT_SIZE));
         
         submitButton.addActionListener((event) -> {
-            try {
-                setVisibility(puzzleGameMessageComponents,false);
-                String indexString = indexTextBox.getText();
-                String guessString = guessTextBox.getText();
-                if (indexString.length() > 0 && indexString.matches("\\d+") && guessString.length() > 0 && guessString.matches("[A-Za-z]+")) {
-                    final URL getAllActiveGamesURL = new URL (HOSTNAME + "/guess/" + playerID + "/" + indexString + "/" + guessString);
-                    final InputStream input = getAllActiveGamesURL.openStream();
-                    final BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8));
-                    String[] response = reader.lines().collect(Collectors.joining()).split("[|]");
-                    final String puzzleInStringFormat = response[0];
+            setVisibility(puzzleGameMessageComponents,false);
+            String indexString = indexTextBox.getText();
+            String guessString = guessTextBox.getText();
+            if (indexString.length() > 0 && indexString.matches("\\d+") && guessString.length() > 0 && guessString.matches("[A-Za-z]+")) {
+                // cleared right away, so the player can type the next guess while this one is sent
+                indexTextBox.setText("");
+                guessTextBox.setText("");
+                // the puzzle in the response is not shown: it has no version, so it could be older than the state the stream of
+                // the game has already shown, and the guess reaches the canvas through the stream like every other change
+                onEventThread(get("/guess/" + playerID + "/" + indexString + "/" + guessString), body -> {
+                    String[] response = body.split("[|]");
                     if (response.length > 1) {
                         submitErrorLabel.setVisible(true);
                     }
-                    MinimalPuzzle updatedMinimalPuzzle = MinimalPuzzle.parseFromString(puzzleInStringFormat);
-                    canvas.setMinimalPuzzle(Optional.of(updatedMinimalPuzzle));
-                    indexTextBox.setText("");
-                    guessTextBox.setText("");
-                    canvas.repaint();
-                } else {
-                    submitErrorLabel.setVisible(true);
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
+                });
+            } else {
+                submitErrorLabel.setVisible(true);
             }
         });
         
         eraseButton.addActionListener((event) -> {
-            try {
-                setVisibility(puzzleGameMessageComponents,false);
-                String indexString = indexTextBox.getText();
-                if (indexString.length() > 0 && indexString.matches("\\d+")) {
-                    final URL getAllActiveGamesURL = new URL (HOSTNAME + "/erase/" + playerID + "/" + indexString);
-                    final InputStream input = getAllActiveGamesURL.openStream();
-                    final BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8));
-                    String[] response = reader.lines().collect(Collectors.joining()).split("[|]");
-                    String puzzleInStringFormat = response[0];
+            setVisibility(puzzleGameMessageComponents,false);
+            String indexString = indexTextBox.getText();
+            if (indexString.length() > 0 && indexString.matches("\\d+")) {
+                indexTextBox.setText("");
+                // as for a guess, the erased entry is shown by the stream of the game
+                onEventThread(get("/erase/" + playerID + "/" + indexString), body -> {
+                    String[] response = body.split("[|]");
                     if (response.length > 1) {
                         eraseErrorLabel.setVisible(true);
                     }
-                    MinimalPuzzle updatedMinimalPuzzle = MinimalPuzzle.parseFromString(puzzleInStringFormat);
-                    canvas.setMinimalPuzzle(Optional.of(updatedMinimalPuzzle));
-                    indexTextBox.setText("");
-                    canvas.repaint();
-                } else {
-                    eraseErrorLabel.setVisible(true);
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
+                });
+            } else {
+                eraseErrorLabel.setVisible(true);
             }
         });
         
         checkButton.addActionListener((event) -> {
-            try {
-                setVisibility(puzzleGameMessageComponents,false);
-                final URL getAllActiveGamesURL = new URL (HOSTNAME + "/check/" + playerID);
-                final InputStream input = getAllActiveGamesURL.openStream();
-                final BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8));
-                String[] response = reader.lines().collect(Collectors.joining()).split("[|]");
-                String puzzleInStringFormat = response[0];
+            setVisibility(puzzleGameMessageComponents,false);
+            // as for a guess, any change the check makes to the puzzle is shown by the stream of the game
+            onEventThread(get("/check/" + playerID), body -> {
+                String[] response = body.split("[|]");
                 String isComplete = response[1];
                 if (isComplete.equals("true")) {
                     puzzleIsCompleteLabel.setVisible(true);
                 }
-                MinimalPuzzle updatedMinimalPuzzle = MinimalPuzzle.parseFromString(puzzleInStringFormat);
-                canvas.setMinimalPuzzle(Optional.of(updatedMinimalPuzzle));
-                canvas.repaint();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            });
         });
         
         exitButton.addActionListener((event) -> {
-            try {
-                final URL getAllActiveGamesURL = new URL (HOSTNAME + "/exitGame/" + playerID);
-                final InputStream input = getAllActiveGamesURL.openStream();
-                final BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8));
+            onEventThread(get("/exitGame/" + playerID), body -> {
                 canvas.setMinimalPuzzle(Optional.empty());
                 
                 window.setComponentZOrder(contentPane, 0);
@@ -534,10 +612,7 @@ public class NewCrosswordClient {
                 setVisibility(puzzleGameMessageComponents,false);
                 setVisibility(lobbyComponents, true);
                 canvas.repaint();
-                
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            });
         });
 
         // add all static components onto the initial content pane
@@ -0,0 +1,811 @@
+package crossword.web;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An HTTP/1.1 server with keep-alive that does all of its network I/O on a single selector thread. It implements the API of
+ * com.sun.net.httpserver.HttpServer, so the same contexts, filters and handlers run on it unchanged.
+ *
+ * <p> Like HttpServer, each request is handled on the executor of the server (or on the selector thread if there is none),
+ * by the context whose path is the longest prefix of the request path. A handler may return without closing its exchange
+ * and finish the response later from any thread, e.g. when a game changes; until then the connection costs no thread at all,
+ * only its buffers. Responses are queued by the threads that write them and sent by the selector thread, with TCP_NODELAY,
+ * and the next request on a connection is only handled once the response to the previous one is complete. A client that does
+ * not read its responses cannot make output pile up: if more than MAX_QUEUED_BYTES already wait to be sent on its connection
+ * when more output comes, the connection is closed, and a client of /streamGame reconnects from the last event it read.
+ *
+ * <p> Request bodies must have a Content-Length; chunked request bodies are rejected.
+ *
+ * <p> Thread safety argument: the selector, the channels and the input buffers of connections are only used by the selector
+ * thread. Other threads only add buffers to the threadsafe output queue of a connection and to pendingWrites, then wake up
+ * the selector; each exchange is used by one thread at a time, the one handling it or finishing its response.
+ */
+public class NioHttpServer extends HttpServer {
+
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final int MAX_REQUEST_BYTES = 1024 * 1024;
+    private static final int MAX_QUEUED_BYTES = 1024 * 1024;
+    private static final byte[] END_OF_HEADERS = "\r\n\r\n".getBytes(ISO_8859_1);
+    private static final Map<Integer, String> REASONS = Map.of(200, "OK", 400, "Bad Request", 404, "Not Found",
+            413, "Payload Too Large", 431, "Request Header Fields Too Large", 500, "Internal Server Error", 501, "Not Implemented");
+
+    // markers in the output queue of a connection for the end of a response, after which it is kept alive or closed
+    private static final ByteBuffer END_KEEP_ALIVE = ByteBuffer.allocate(0);
+    private static final ByteBuffer END_CLOSE = ByteBuffer.allocate(0);
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final List<Context> contexts = new CopyOnWriteArrayList<>();
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final Set<Connection> connections = new HashSet<>();
+    private volatile Executor executor;
+    private volatile boolean running;
+    private Thread selectorThread;
+
+    /**
+     * Make a server bound to an address, which handles no request until it is started.
+     *
+     * @param address the address to listen on, with port 0 for an ephemeral port
+     * @param backlog the most connections waiting to be accepted, or 0 for a system default
+     * @return a new server
+     * @throws IOException if the server cannot be bound to address
+     */
+    public static NioHttpServer create(InetSocketAddress address, int backlog) throws IOException {
+        final NioHttpServer server = new NioHttpServer();
+        server.bind(address, backlog);
+        return server;
+    }
+
+    /**
+     * Make an unbound server.
+     *
+     * @throws IOException if a selector cannot be opened
+     */
+    public NioHttpServer() throws IOException {
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+    }
+
+    @Override
+    public void bind(InetSocketAddress address, int backlog) throws IOException {
+        this.serverChannel.bind(address, backlog);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (this.selectorThread != null) {
+            throw new IllegalStateException("server already started");
+        }
+        try {
+            this.serverChannel.configureBlocking(false);
+            this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot start server", e);
+        }
+        this.running = true;
+        this.selectorThread = new Thread(this::run, "NioHttpServer-" + getAddress().getPort());
+        this.selectorThread.start();
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Stop this server: close the listening socket and every connection, including those whose response is not complete.
+     *
+     * @param delay ignored, since responses that are not complete may wait for a change indefinitely
+     */
+    @Override
+    public void stop(int delay) {
+        this.running = false;
+        this.selector.wakeup();
+        final Thread thread;
+        synchronized (this) {
+            thread = this.selectorThread;
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        final HttpContext context = createContext(path);
+        context.setHandler(handler);
+        return context;
+    }
+
+    @Override
+    public synchronized HttpContext createContext(String path) {
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("not an absolute path: " + path);
+        }
+        for (Context context : this.contexts) {
+            if (context.path.equals(path)) {
+                throw new IllegalArgumentException("context already exists: " + path);
+            }
+        }
+        final Context context = new Context(path);
+        this.contexts.add(context);
+        return context;
+    }
+
+    @Override
+    public synchronized void removeContext(String path) {
+        if (!this.contexts.removeIf(context -> context.path.equals(path))) {
+            throw new IllegalArgumentException("no context: " + path);
+        }
+    }
+
+    @Override
+    public void removeContext(HttpContext context) {
+        removeContext(context.getPath());
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) this.serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Run the selector loop until the server is stopped, then close everything.
+     */
+    private void run() {
+        while (this.running) {
+            try {
+                this.selector.select();
+            } catch (IOException e) {
+                e.printStackTrace();
+                break;
+            }
+            for (Connection connection = this.pendingWrites.poll(); connection != null; connection = this.pendingWrites.poll()) {
+                writeOrClose(connection);
+            }
+            for (SelectionKey key : this.selector.selectedKeys()) {
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                final Connection connection = (Connection) key.attachment();
+                if (key.isReadable()) {
+                    read(connection);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    writeOrClose(connection);
+                }
+            }
+            this.selector.selectedKeys().clear();
+        }
+        for (Connection connection : new ArrayList<>(this.connections)) {
+            close(connection);
+        }
+        try {
+            this.serverChannel.close();
+            this.selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Accept the waiting connections.
+     */
+    private void accept() {
+        try {
+            for (SocketChannel channel = this.serverChannel.accept(); channel != null; channel = this.serverChannel.accept()) {
+                channel.configureBlocking(false);
+                // responses are written whole, so there is nothing to gain from Nagle's algorithm but a delayed-ACK stall
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                final Connection connection = new Connection(channel);
+                connection.key = channel.register(this.selector, SelectionKey.OP_READ, connection);
+                this.connections.add(connection);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Read what the client of a connection sent, and handle the next request if it is complete.
+     */
+    private void read(Connection connection) {
+        try {
+            if (!connection.input.hasRemaining()) {
+                if (connection.exchangeInProgress || connection.input.capacity() >= MAX_REQUEST_BYTES) {
+                    // stop reading until the current response is complete and the buffered request is handled
+                    connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+                    return;
+                }
+                final ByteBuffer larger = ByteBuffer.allocate(Math.min(connection.input.capacity() * 2, MAX_REQUEST_BYTES));
+                connection.input.flip();
+                larger.put(connection.input);
+                connection.input = larger;
+            }
+            if (connection.channel.read(connection.input) < 0) {
+                close(connection);
+                return;
+            }
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        if (!connection.exchangeInProgress) {
+            handleNextRequest(connection);
+            writeOrClose(connection);
+        }
+    }
+
+    /**
+     * Write as much of the output queued on a connection as the socket takes, closing the connection if it fails.
+     */
+    private void writeOrClose(Connection connection) {
+        try {
+            write(connection);
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Write as much of the output queued on a connection as the socket takes. Once a response is complete,
+     * close the connection or handle the next request on it. A response the selector thread makes itself is only queued,
+     * and written by the next iteration of the loop here, so any number of pipelined requests never grow the stack.
+     */
+    private void write(Connection connection) throws IOException {
+        if (connection.closed) {
+            return;
+        }
+        if (connection.overflowed) {
+            close(connection);
+            return;
+        }
+        for (ByteBuffer buffer = connection.output.peek(); buffer != null; buffer = connection.output.peek()) {
+            if (buffer == END_CLOSE) {
+                close(connection);
+                return;
+            }
+            if (buffer == END_KEEP_ALIVE) {
+                connection.output.poll();
+                connection.exchangeInProgress = false;
+                connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_READ);
+                handleNextRequest(connection);
+                continue;
+            }
+            connection.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+            connection.output.poll();
+            connection.queuedBytes.addAndGet(-buffer.limit());
+        }
+        connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Close a connection, whose pending and future output is dropped.
+     */
+    private void close(Connection connection) {
+        connection.closed = true;
+        connection.key.cancel();
+        this.connections.remove(connection);
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    /**
+     * Handle the next request of a connection that is not handling one, if the request has been read completely.
+     */
+    private void handleNextRequest(Connection connection) {
+        final ByteBuffer input = connection.input;
+        final int headerEnd = indexOf(input, END_OF_HEADERS);
+        if (headerEnd < 0) {
+            if (input.position() >= MAX_HEADER_BYTES) {
+                respondAndClose(connection, 431, "Request header too large");
+            }
+            return;
+        }
+
+        final String[] lines = new String(input.array(), 0, headerEnd, ISO_8859_1).split("\r\n");
+        final String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            respondAndClose(connection, 400, "Malformed request line");
+            return;
+        }
+        final Headers headers = new Headers();
+        for (int i = 1; i < lines.length; i++) {
+            final int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                respondAndClose(connection, 400, "Malformed header");
+                return;
+            }
+            headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+        }
+        if (headers.containsKey("Transfer-Encoding")) {
+            respondAndClose(connection, 501, "Request bodies must have a Content-Length");
+            return;
+        }
+        final int bodyLength;
+        final URI uri;
+        try {
+            bodyLength = Integer.parseInt(headers.getFirst("Content-Length") == null ? "0" : headers.getFirst("Content-Length"));
+            uri = new URI(requestLine[1]);
+        } catch (NumberFormatException | java.net.URISyntaxException e) {
+            respondAndClose(connection, 400, "Malformed request");
+            return;
+        }
+        final int bodyStart = headerEnd + END_OF_HEADERS.length;
+        if (bodyLength < 0 || bodyStart + (long) bodyLength > MAX_REQUEST_BYTES) {
+            respondAndClose(connection, 413, "Request too large");
+            return;
+        }
+        if (input.position() < bodyStart + bodyLength) {
+            // wait for the rest of the body
+            return;
+        }
+        final byte[] body = new byte[bodyLength];
+        System.arraycopy(input.array(), bodyStart, body, 0, bodyLength);
+        input.flip();
+        input.position(bodyStart + bodyLength);
+        input.compact();
+
+        final String connectionHeader = headers.getFirst("Connection");
+        final boolean keepAlive = requestLine[2].equals("HTTP/1.1") && !"close".equalsIgnoreCase(connectionHeader);
+        final Context context = findContext(uri.getPath());
+        connection.exchangeInProgress = true;
+        if (context == null || context.handler == null) {
+            respond(connection, 404, "No context found for request", keepAlive);
+            return;
+        }
+        final Exchange exchange = new Exchange(connection, requestLine[0], uri, requestLine[2], headers, body, context, keepAlive);
+        final Executor executor = this.executor;
+        if (executor == null) {
+            handle(exchange);
+        } else {
+            executor.execute(() -> handle(exchange));
+        }
+    }
+
+    /**
+     * Run an exchange through the filters and handler of its context. Like HttpServer, the connection is closed if they throw.
+     */
+    private static void handle(Exchange exchange) {
+        try {
+            new Filter.Chain(exchange.context.getFilters(), exchange.context.getHandler()).doFilter(exchange);
+            // a response finished later, e.g. when a game changes, shows its status to the client now
+            exchange.sendHead();
+        } catch (IOException | RuntimeException e) {
+            exchange.abort();
+        }
+    }
+
+    /**
+     * @param path path of a request
+     * @return the context whose path is the longest prefix of path, or null if there is none
+     */
+    private Context findContext(String path) {
+        Context found = null;
+        for (Context context : this.contexts) {
+            if (path != null && path.startsWith(context.path) && (found == null || context.path.length() > found.path.length())) {
+                found = context;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Queue a whole plain-text response on a connection from the selector thread, after which the connection is closed.
+     * The caller writes it.
+     */
+    private void respondAndClose(Connection connection, int code, String message) {
+        connection.exchangeInProgress = true;
+        respond(connection, code, message, false);
+    }
+
+    /**
+     * Queue a whole plain-text response on a connection from the selector thread. The caller writes it.
+     */
+    private void respond(Connection connection, int code, String message, boolean keepAlive) {
+        final byte[] body = message.getBytes(UTF_8);
+        final String head = statusLine(code) + "Content-Type: text/plain; charset=utf-8\r\nContent-Length: " + body.length + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n") + "\r\n";
+        connection.enqueue(ByteBuffer.wrap(concat(head.getBytes(ISO_8859_1), body)));
+        connection.output.add(keepAlive ? END_KEEP_ALIVE : END_CLOSE);
+    }
+
+    /**
+     * @return the index in the data of buffer (from 0 to its position) where pattern starts, or -1 if it does not occur
+     */
+    private static int indexOf(ByteBuffer buffer, byte[] pattern) {
+        final byte[] data = buffer.array();
+        outer:
+        for (int i = 0; i + pattern.length <= buffer.position(); i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static String statusLine(int code) {
+        return "HTTP/1.1 " + code + " " + REASONS.getOrDefault(code, "Status") + "\r\n";
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        final byte[] both = new byte[first.length + second.length];
+        System.arraycopy(first, 0, both, 0, first.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
+    }
+
+    /**
+     * A client connection. Its channel, key and input are only used by the selector thread.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private boolean exchangeInProgress = false;
+        private final Queue<ByteBuffer> output = new ConcurrentLinkedQueue<>();
+        // bytes of the buffers in output, including the one being written
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private volatile boolean overflowed = false;
+        private volatile boolean closed = false;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Queue output to be sent by the selector thread; may be called from any thread
+         *
+         * @throws IOException if the connection is closed, or is closed now because its client has not read
+         *                     more than MAX_QUEUED_BYTES of output already queued
+         */
+        private void send(ByteBuffer buffer) throws IOException {
+            if (this.closed || this.overflowed) {
+                throw new IOException("connection closed");
+            }
+            final boolean queued = enqueue(buffer);
+            NioHttpServer.this.pendingWrites.add(this);
+            NioHttpServer.this.selector.wakeup();
+            if (!queued) {
+                throw new IOException("connection closed, its client is not reading its responses");
+            }
+        }
+
+        /**
+         * Queue output unless more than MAX_QUEUED_BYTES already wait to be sent, which marks the connection to be closed
+         * by the selector thread instead. A buffer of any size is queued if less is waiting, and the end of a response always is.
+         *
+         * @return true if buffer was queued
+         */
+        private boolean enqueue(ByteBuffer buffer) {
+            final long waiting = this.queuedBytes.getAndAdd(buffer.limit());
+            if (buffer.limit() > 0 && waiting > MAX_QUEUED_BYTES) {
+                this.overflowed = true;
+                return false;
+            }
+            this.output.add(buffer);
+            return true;
+        }
+    }
+
+    /**
+     * A context of this server.
+     */
+    private final class Context extends HttpContext {
+        private final String path;
+        private volatile HttpHandler handler;
+        private final List<Filter> filters = new CopyOnWriteArrayList<>();
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private volatile Authenticator authenticator;
+
+        private Context(String path) {
+            this.path = path;
+        }
+
+        @Override public HttpHandler getHandler() { return this.handler; }
+        @Override public void setHandler(HttpHandler handler) { this.handler = handler; }
+        @Override public String getPath() { return this.path; }
+        @Override public HttpServer getServer() { return NioHttpServer.this; }
+        @Override public Map<String, Object> getAttributes() { return this.attributes; }
+        @Override public List<Filter> getFilters() { return this.filters; }
+        @Override public Authenticator setAuthenticator(Authenticator authenticator) {
+            final Authenticator old = this.authenticator;
+            this.authenticator = authenticator;
+            return old;
+        }
+        @Override public Authenticator getAuthenticator() { return this.authenticator; }
+    }
+
+    /**
+     * A request on a connection and its response. The response is sent with a Content-Length if its length is given to
+     * sendResponseHeaders(), or else in chunks, one for each flush of the response body; the headers are sent together
+     * with the first chunk or the end of the response, or when the handler returns, whichever comes first.
+     */
+    private static final class Exchange extends HttpExchange {
+        private final Connection connection;
+        private final String method;
+        private final URI uri;
+        private final String protocol;
+        private final Headers requestHeaders;
+        private final Headers responseHeaders = new Headers();
+        private final Context context;
+        private final boolean keepAlive;
+        private final Map<String, Object> attributes = new HashMap<>();
+        private InputStream requestBody;
+        private OutputStream responseBody;
+        private int responseCode = -1;
+
+        // the status line and headers until they are sent, then null
+        private byte[] head;
+        private boolean chunked;
+        private boolean ended;
+
+        private Exchange(Connection connection, String method, URI uri, String protocol, Headers requestHeaders, byte[] body,
+                Context context, boolean keepAlive) {
+            this.connection = connection;
+            this.method = method;
+            this.uri = uri;
+            this.protocol = protocol;
+            this.requestHeaders = requestHeaders;
+            this.context = context;
+            this.keepAlive = keepAlive;
+            this.requestBody = new ByteArrayInputStream(body);
+            this.responseBody = new ResponseBody();
+        }
+
+        @Override public Headers getRequestHeaders() { return this.requestHeaders; }
+        @Override public Headers getResponseHeaders() { return this.responseHeaders; }
+        @Override public URI getRequestURI() { return this.uri; }
+        @Override public String getRequestMethod() { return this.method; }
+        @Override public HttpContext getHttpContext() { return this.context; }
+        @Override public InputStream getRequestBody() { return this.requestBody; }
+        @Override public OutputStream getResponseBody() { return this.responseBody; }
+        @Override public synchronized int getResponseCode() { return this.responseCode; }
+        @Override public String getProtocol() { return this.protocol; }
+        @Override public synchronized Object getAttribute(String name) { return this.attributes.get(name); }
+        @Override public synchronized void setAttribute(String name, Object value) { this.attributes.put(name, value); }
+        @Override public HttpPrincipal getPrincipal() { return null; }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            try {
+                return (InetSocketAddress) this.connection.channel.getRemoteAddress();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            try {
+                return (InetSocketAddress) this.connection.channel.getLocalAddress();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void setStreams(InputStream requestBody, OutputStream responseBody) {
+            if (requestBody != null) {
+                this.requestBody = requestBody;
+            }
+            if (responseBody != null) {
+                this.responseBody = responseBody;
+            }
+        }
+
+        @Override
+        public synchronized void sendResponseHeaders(int code, long length) throws IOException {
+            if (this.responseCode >= 0) {
+                throw new IOException("headers already sent");
+            }
+            this.responseCode = code;
+            this.chunked = length == 0;
+            final StringBuilder head = new StringBuilder(statusLine(code));
+            for (Map.Entry<String, List<String>> header : this.responseHeaders.entrySet()) {
+                for (String value : header.getValue()) {
+                    head.append(header.getKey()).append(": ").append(value).append("\r\n");
+                }
+            }
+            if (this.chunked) {
+                head.append("Transfer-Encoding: chunked\r\n");
+            } else {
+                head.append("Content-Length: ").append(Math.max(length, 0)).append("\r\n");
+            }
+            if (!this.keepAlive) {
+                head.append("Connection: close\r\n");
+            }
+            this.head = head.append("\r\n").toString().getBytes(ISO_8859_1);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (this.ended) {
+                return;
+            }
+            if (this.responseCode < 0) {
+                abort();
+                return;
+            }
+            try {
+                this.responseBody.close();
+            } catch (IOException e) {
+                // the client is gone
+            }
+        }
+
+        /**
+         * End the exchange without a complete response, closing its connection
+         */
+        private synchronized void abort() {
+            this.ended = true;
+            try {
+                this.connection.send(END_CLOSE);
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+
+        /**
+         * Send the headers if they are not sent yet, and the response is not complete
+         */
+        private synchronized void sendHead() throws IOException {
+            if (this.head != null && !this.ended) {
+                this.connection.send(ByteBuffer.wrap(this.head));
+                this.head = null;
+            }
+        }
+
+        /**
+         * Send the headers if not yet sent and then data, framed as a chunk if the response is chunked
+         *
+         * @param data bytes of the body
+         * @param last true if this is the end of the response
+         */
+        private synchronized void send(byte[] data, int length, boolean last) throws IOException {
+            if (this.responseCode < 0) {
+                throw new IOException("response headers not sent");
+            }
+            if (this.ended) {
+                throw new IOException("response already complete");
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(length + (this.head == null ? 0 : this.head.length) + 16);
+            if (this.head != null) {
+                out.write(this.head);
+                this.head = null;
+            }
+            if (this.chunked && length > 0) {
+                out.write((Integer.toHexString(length) + "\r\n").getBytes(ISO_8859_1));
+                out.write(data, 0, length);
+                out.write("\r\n".getBytes(ISO_8859_1));
+            } else {
+                out.write(data, 0, length);
+            }
+            if (last && this.chunked) {
+                out.write("0\r\n\r\n".getBytes(ISO_8859_1));
+            }
+            if (out.size() > 0) {
+                this.connection.send(ByteBuffer.wrap(out.toByteArray()));
+            }
+            if (last) {
+                this.ended = true;
+                this.connection.send(this.keepAlive ? END_KEEP_ALIVE : END_CLOSE);
+            }
+        }
+
+        /**
+         * The body of the response, buffered until it is flushed or closed.
+         */
+        private final class ResponseBody extends OutputStream {
+            private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+            @Override
+            public void write(int b) throws IOException {
+                synchronized (Exchange.this) {
+                    checkOpen();
+                    this.buffer.write(b);
+                }
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                synchronized (Exchange.this) {
+                    checkOpen();
+                    this.buffer.write(bytes, offset, length);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                synchronized (Exchange.this) {
+                    if (Exchange.this.ended || this.buffer.size() == 0) {
+                        return;
+                    }
+                    send(this.buffer.toByteArray(), this.buffer.size(), false);
+                    this.buffer.reset();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                synchronized (Exchange.this) {
+                    if (Exchange.this.ended) {
+                        return;
+                    }
+                    send(this.buffer.toByteArray(), this.buffer.size(), true);
+                    this.buffer.reset();
+                }
+            }
+
+            private void checkOpen() throws IOException {
+                if (Exchange.this.ended) {
+                    throw new IOException("response already complete");
+                }
+            }
+        }
+    }
+}
@@ -18,7 +18,9 @@ class EntryTest {
     // partitions on getCol(): col = 0, col > 0
     // partitions on toString(): none (partitions are dependent on inputs, which we partition in the partitions above)
     // partitions on equals(): this equals that, this does not equal that
-    // partitions on hashCode(): two Entries get hashed to same hash code, two Entries get hashed to different hash codes
+    // partitions on hashCode(): two Entries get hashed to same hash code, two Entries get hashed to different hash codes;
+    //   unequal Entries with the same word length and coordinate sum, unequal Entries differing only in guess
+    // partitions on Entry(): rep is valid, guess has the wrong length
 
     @Test
     public void testAssertionsEnabled() {
@@ -35,7 +37,7 @@ class EntryTest {
         assertEquals(Direction.DOWN, entry.getDirection(), "Expected correct direction");
         assertEquals(0, entry.getRow(), "Expected correct row");
         assertEquals(0, entry.getCol(), "Expected correct col");
-        assertEquals(12, entry.hashCode(), "Expected correct hash code");
+        assertEquals(new Entry("a", "article", Direction.DOWN, 0, 0).hashCode(), entry.hashCode(), "Expected same hash code as an equal entry");
         assertEquals("(a, \"article\", DOWN, 0, 0, \"*\")", entry.toString(), "Expected correct string representation");
     }
     
@@ -48,7 +50,7 @@ class EntryTest {
         assertEquals(Direction.ACROSS, entry.getDirection(), "Expected correct direction");
         assertEquals(1, entry.getRow(), "Expected correct row");
         assertEquals(1, entry.getCol(), "Expected correct col");
-        assertEquals(30, entry.hashCode(), "Expected correct hash code");
+        assertEquals(new Entry("hello", "A common greeting", Direction.ACROSS, 1, 1).hashCode(), entry.hashCode(), "Expected same hash code as an equal entry");
         assertEquals("(hello, \"A common greeting\", ACROSS, 1, 1, \"*****\")", entry.toString(), "Expected correct string representation");        
     }
     
@@ -69,5 +71,25 @@ class EntryTest {
         assertTrue(!entry1.equals(entry2));
         assertTrue(entry1.hashCode() != entry2.hashCode());
     }
+    
+    // covers two Entries get hashed to different hash codes: unequal Entries with the same word length and coordinate sum,
+    //        unequal Entries differing only in guess
+    @Test
+    public void testSimilarEntriesHashDifferently() {
+        Entry entry1 = new Entry("ab", "a hint", Direction.ACROSS, 1, 0);
+        Entry entry2 = new Entry("ab", "a hint", Direction.ACROSS, 0, 1);
+        Entry entry3 = new Entry("cd", "a clue", Direction.ACROSS, 1, 0);
+        Entry entry4 = new Entry("ab", "a hint", Direction.ACROSS, 1, 0, "a*");
+        assertNotEquals(entry1.hashCode(), entry2.hashCode(), "Expected swapped coordinates to hash differently");
+        assertNotEquals(entry1.hashCode(), entry3.hashCode(), "Expected different words of the same length to hash differently");
+        assertNotEquals(entry1.hashCode(), entry4.hashCode(), "Expected different guesses to hash differently");
+    }
+    
+    // covers Entry() guess has the wrong length
+    @Test
+    public void testInvalidGuessRejected() {
+        assertThrows(AssertionError.class, () -> new Entry("hello", "A common greeting", Direction.ACROSS, 1, 1, "hi"),
+                "Expected entry with a guess of the wrong length to be rejected when it is made");
+    }
 
 }
@@ -2,6 +2,7 @@ package crossword;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -25,6 +26,9 @@ public class MinimalPuzzleTest {
     // partitions on equals(that): this equals that, this does not equal that
     // partitions on hashCode(): two objects are equivalent (have same hash code), two objects have different hash codes
     // partitions on parseFromString(): puzzle is valid according to grammar, puzzle is invalid according to grammar
+    // partitions on applyDelta(): delta lists 0 entries, >0 entries; delta is for another version; delta is invalid
+    // partitions on MinimalPuzzleParser.parse(): result compared with parseWithParserlib(): same puzzle, both reject;
+    //   whitespace around tokens: none, before a token, after a token
     // two entries intersect, no intersection
     //
     //
@@ -111,6 +115,59 @@ public class MinimalPuzzleTest {
         assertThrows(IllegalArgumentException.class, () -> {MinimalPuzzle.parseFromString(invalidClientString);}, "expected exception to be thrown");
     }
     
+    // covers applyDelta(): delta lists >0 entries, delta lists 0 entries
+    @Test
+    public void testApplyDelta() throws IOException {
+        Puzzle puzzle = Puzzle.parseFromFile("puzzles/simple.puzzle");
+        MinimalPuzzle minpuzzle = MinimalPuzzle.parseFromString(puzzle.makeClientString());
+        long version = puzzle.getVersion();
+        puzzle.guessWord(1, "market");
+        puzzle.guessWord(0, "star");
+        MinimalPuzzle updated = minpuzzle.applyDelta(puzzle.makeClientDeltaString(version), version);
+        assertEquals(MinimalPuzzle.parseFromString(puzzle.makeClientString()), updated, "expected delta to bring puzzle up to date");
+        assertSame(minpuzzle.getEntryList().get(7), updated.getEntryList().get(7), "expected unchanged entry to be shared");
+        assertEquals(updated, updated.applyDelta(puzzle.makeClientDeltaString(puzzle.getVersion()), puzzle.getVersion()), "expected empty delta to change nothing");
+    }
     
+    // covers applyDelta(): delta is for another version, delta is invalid
+    @Test
+    public void testApplyDeltaInvalid() {
+        MinimalEntry entry1 = new MinimalEntry(0, "a common greeting", Direction.ACROSS, 3, 0, 5, "*".repeat(5));
+        MinimalPuzzle puzzle = new MinimalPuzzle(List.of(entry1), "Easy", "An easy puzzle to get started");
+        assertThrows(IllegalArgumentException.class, () -> {puzzle.applyDelta("~~ 3\n(0, \"hello\")", 2);}, "expected exception for wrong version");
+        assertThrows(IllegalArgumentException.class, () -> {puzzle.applyDelta("~~ 2\n(0, \"hi\")", 2);}, "expected exception for wrong length");
+        assertThrows(IllegalArgumentException.class, () -> {puzzle.applyDelta("~~ 2\n(1, \"hello\")", 2);}, "expected exception for wrong index");
+        assertThrows(IllegalArgumentException.class, () -> {puzzle.applyDelta(">> \"Easy\"", 2);}, "expected exception for invalid delta");
+    }
+    
+    // covers MinimalPuzzleParser.parse(): same puzzle, both reject; whitespace none, before a token, after a token
+    @Test
+    public void testParseSameAsParserlib() throws IOException {
+        final List<String> inputs = List.of(
+                Puzzle.parseFromFile("puzzles/simple.puzzle").makeClientString(),
+                Puzzle.parseFromFile("puzzles/rhyme.puzzle").makeClientString(),
+                ">>\"Easy\"\"d\"(0,\"tw\",ACROSS,1,0,4,\"****\")",
+                " >> \" Easy \" \"d\" ( 0,\" tw \", DOWN,1,0,4, \"****\" ) ",
+                ">>\"Easy\"\"d\"(0,\"tw\",DOWN ,1,0,4,\"****\")",
+                ">>\"Easy\"\"d\"(0 ,\"tw\",ACROSS,1,0,4,\"****\")",
+                ">>\"Easy\"\"d\"(0,\"tw\",ACROSS,1,0,4 ,\"****\")",
+                ">>\"Easy\"\"d\"(0,\"tw\",ACROSS,1,0,4,\"****\",)",
+                ">>\"Easy\"\"d\"(0,\"tw\",ACROSS,1,0,4,\"****\")junk");
+        for (String input : inputs) {
+            Object expected;
+            try {
+                expected = MinimalPuzzleParser.parseWithParserlib(input);
+            } catch (UnableToParseException | NumberFormatException e) {
+                expected = "rejected";
+            }
+            Object actual;
+            try {
+                actual = MinimalPuzzleParser.parse(input);
+            } catch (UnableToParseException e) {
+                actual = "rejected";
+            }
+            assertEquals(expected, actual, "expected same result as parserlib for " + input);
+        }
+    }
     
 }
@@ -0,0 +1,72 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for PuzzleCatalogFile.
+ */
+class PuzzleCatalogFileTest {
+
+    // TESTING STRATEGY
+    // partitions on write(), open():
+    //   number of puzzles: 0, >1
+    //   strings used once, strings used more than once
+    //   file is a catalog file, file is not a catalog file, file is truncated
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    // covers >1 puzzles, strings used more than once, file is a catalog file
+    @Test
+    public void testWriteAndOpen() throws IOException {
+        PuzzleTemplate simple = Puzzle.parseFromFile("puzzles/simple.puzzle").getTemplate();
+        PuzzleTemplate rhyme = Puzzle.parseFromFile("puzzles/rhyme.puzzle").getTemplate();
+        // same name and description as simple, so they are stored once
+        PuzzleTemplate small = new PuzzleTemplate(simple.getEntryList().subList(0, 1), "Easy", "An easy puzzle to get started");
+        Path file = Files.createTempFile("puzzles", ".catalog");
+        try {
+            PuzzleCatalogFile.write(Map.of("simple", simple, "rhyme", rhyme, "small", small), file);
+            PuzzleCatalog catalog = PuzzleCatalogFile.open(file, 1_000);
+            assertEquals(Set.of("simple", "rhyme", "small"), catalog.getPuzzleNames(), "expected puzzle names");
+            assertEquals(0, catalog.getCachedTemplateCount(), "expected nothing decoded before use");
+            assertEquals(simple, catalog.getTemplate("simple").get(), "expected same puzzle as parsed");
+            assertEquals(rhyme, catalog.getTemplate("rhyme").get(), "expected same puzzle as parsed");
+            assertEquals(small, catalog.getTemplate("small").get(), "expected same puzzle as parsed");
+            assertEquals(simple.getBlankClientString(), catalog.getTemplate("simple").get().getBlankClientString(), "expected same client string");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // covers 0 puzzles, file is not a catalog file, file is truncated
+    @Test
+    public void testInvalidFiles() throws IOException {
+        Path file = Files.createTempFile("puzzles", ".catalog");
+        try {
+            PuzzleCatalogFile.write(Map.of(), file);
+            assertEquals(Set.of(), PuzzleCatalogFile.open(file, 1_000).getPuzzleNames(), "expected no puzzles");
+
+            Files.write(file, Files.readAllBytes(Path.of("puzzles/simple.puzzle")));
+            assertThrows(IOException.class, () -> PuzzleCatalogFile.open(file, 1_000), "expected puzzle file to be rejected");
+
+            PuzzleCatalogFile.write(Map.of("simple", Puzzle.parseFromFile("puzzles/simple.puzzle").getTemplate()), file);
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, 20));
+            assertThrows(IOException.class, () -> PuzzleCatalogFile.open(file, 1_000), "expected truncated file to be rejected");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the PuzzleCatalog abstract data type.
+ */
+class PuzzleCatalogTest {
+
+    // TESTING STRATEGY
+    // partitions on eager(), lazy():
+    //   catalog is eager, catalog is lazy
+    // partitions on getPuzzleNames(): 1 puzzle, >1 puzzles
+    // partitions on getTemplate():
+    //   puzzle not in the catalog, puzzle file cannot be parsed
+    //   template already in memory, template parsed on this call
+    //   cache has room for the template, template evicts another one
+    // partitions on getCachedTemplateCount(): 0, 1, >1
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    // covers catalog is eager, 1 puzzle, template already in memory, puzzle not in the catalog, 0 cached templates
+    @Test
+    public void testEagerCatalog() throws IOException {
+        Puzzle puzzle = Puzzle.parseFromFile("puzzles/simple.puzzle");
+        PuzzleCatalog catalog = PuzzleCatalog.eager(Map.of("simple", puzzle));
+        assertEquals(Set.of("simple"), catalog.getPuzzleNames(), "expected puzzle names");
+        assertSame(puzzle.getTemplate(), catalog.getTemplate("simple").get(), "expected template of the given puzzle");
+        assertEquals(Optional.empty(), catalog.getTemplate("rhyme"), "expected no template for a missing puzzle");
+        assertEquals(0, catalog.getCachedTemplateCount(), "expected nothing parsed");
+    }
+
+    // covers catalog is lazy, >1 puzzles, template parsed on this call, template already in memory, cache has room,
+    //        puzzle file cannot be parsed, 0, 1 and >1 cached templates
+    @Test
+    public void testLazyCatalog() {
+        PuzzleCatalog catalog = PuzzleCatalog.lazy(Map.of("simple", "puzzles/simple.puzzle",
+                                                          "rhyme", "puzzles/rhyme.puzzle",
+                                                          "invalid", "invalidPuzzles/invalidsimple.puzzle"), 1_000);
+        assertEquals(Set.of("simple", "rhyme", "invalid"), catalog.getPuzzleNames(), "expected puzzle names");
+        assertEquals(0, catalog.getCachedTemplateCount(), "expected nothing parsed before use");
+
+        PuzzleTemplate simple = catalog.getTemplate("simple").get();
+        assertEquals("Easy", simple.getName(), "expected the parsed puzzle");
+        assertEquals(1, catalog.getCachedTemplateCount(), "expected one parsed puzzle");
+        assertSame(simple, catalog.getTemplate("simple").get(), "expected the cached template");
+
+        catalog.getTemplate("rhyme").get();
+        assertEquals(2, catalog.getCachedTemplateCount(), "expected two parsed puzzles");
+
+        assertEquals(Optional.empty(), catalog.getTemplate("invalid"), "expected no template for an invalid puzzle");
+        assertEquals(2, catalog.getCachedTemplateCount(), "expected invalid puzzle not cached");
+    }
+
+    // covers catalog is lazy, template evicts another one
+    @Test
+    public void testLazyCatalogEviction() {
+        // simple.puzzle has 7 x 10 = 70 cells and simple2.puzzle 3 x 3 = 9 cells, so only one puzzle fits
+        PuzzleCatalog catalog = PuzzleCatalog.lazy(Map.of("simple", "puzzles/simple.puzzle",
+                                                          "simple2", "puzzles/simple2.puzzle"), 75);
+        PuzzleTemplate simple = catalog.getTemplate("simple").get();
+        catalog.getTemplate("simple2").get();
+        assertEquals(1, catalog.getCachedTemplateCount(), "expected least recently used puzzle evicted");
+
+        PuzzleTemplate reparsed = catalog.getTemplate("simple").get();
+        assertNotSame(simple, reparsed, "expected evicted puzzle to be parsed again");
+        assertEquals(simple, reparsed, "expected the same puzzle after parsing again");
+        assertEquals(1, catalog.getCachedTemplateCount(), "expected least recently used puzzle evicted");
+    }
+}
@@ -0,0 +1,99 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+/**
+ * Tests for PuzzleGenerator.
+ */
+class PuzzleGeneratorTest {
+
+    // TESTING STRATEGY
+    // partitions on generateEntries():
+    //   entries: 0, 1, >1
+    //   board: 1 row, 1 column, square, too small for any word, too small for the entries
+    //   seed: same as another call, different
+    //   hint length: 1, >1
+    // partitions on generate(): parses to the generated entries, 100 x 100 board
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    /**
+     * Assert that entries form a consistent puzzle on a board of rows x cols cells, with hints of hintLength characters
+     */
+    private static void assertValidPuzzle(List<Entry> entries, int rows, int cols, int hintLength) {
+        assertEquals(List.of(), PuzzleValidator.validate(entries), "expected a consistent puzzle");
+        for (Entry entry : entries) {
+            final boolean across = entry.getDirection() == Direction.ACROSS;
+            assertTrue(entry.getWord().matches("[a-z]+"), "expected lowercase letters: " + entry.getWord());
+            assertTrue(entry.getRow() + (across ? 1 : entry.getWord().length()) <= rows, "expected entry within the rows: " + entry);
+            assertTrue(entry.getCol() + (across ? entry.getWord().length() : 1) <= cols, "expected entry within the columns: " + entry);
+            assertEquals(hintLength, entry.getHint().length(), "expected hint length");
+            assertEquals(entry.getHint().trim(), entry.getHint(), "expected hint without surrounding spaces");
+        }
+    }
+
+    // covers entries 0, square board
+    @Test
+    public void testNoEntries() {
+        assertEquals(List.of(), PuzzleGenerator.generateEntries(5, 5, 0, 10, 0), "expected no entries");
+    }
+
+    // covers entries 1, 1 row, hint length 1
+    @Test
+    public void testOneRow() {
+        final List<Entry> entries = PuzzleGenerator.generateEntries(1, 12, 1, 1, 0);
+        assertEquals(1, entries.size(), "expected one entry");
+        assertEquals(Direction.ACROSS, entries.get(0).getDirection(), "expected only room across");
+        assertValidPuzzle(entries, 1, 12, 1);
+    }
+
+    // covers entries >1, 1 column, hint length >1
+    @Test
+    public void testOneColumn() {
+        final List<Entry> entries = PuzzleGenerator.generateEntries(40, 1, 3, 25, 7);
+        assertEquals(3, entries.size(), "expected three entries");
+        for (Entry entry : entries) {
+            assertEquals(Direction.DOWN, entry.getDirection(), "expected only room down");
+        }
+        assertValidPuzzle(entries, 40, 1, 25);
+    }
+
+    // covers square board, seed same as another call, different
+    @Test
+    public void testSeed() {
+        final List<Entry> entries = PuzzleGenerator.generateEntries(15, 15, 40, 12, 42);
+        assertValidPuzzle(entries, 15, 15, 12);
+        assertEquals(entries, PuzzleGenerator.generateEntries(15, 15, 40, 12, 42), "expected the same seed to give the same entries");
+        assertNotEquals(entries, PuzzleGenerator.generateEntries(15, 15, 40, 12, 43), "expected another seed to give other entries");
+    }
+
+    // covers board too small for any word, too small for the entries
+    @Test
+    public void testBoardTooSmall() {
+        assertThrows(IllegalArgumentException.class, () -> PuzzleGenerator.generateEntries(2, 2, 1, 5, 0),
+                "expected no room for a word");
+        assertThrows(IllegalArgumentException.class, () -> PuzzleGenerator.generateEntries(3, 3, 7, 5, 0),
+                "expected no room for the entries");
+    }
+
+    // covers generate() parses to the generated entries, 100 x 100 board
+    @Test
+    public void testGenerateLargePuzzle() throws UnableToParseException {
+        final String puzzleString = PuzzleGenerator.generate("large", 100, 100, 1000, 40, 1);
+        final Puzzle puzzle = PuzzleParser.parse(puzzleString);
+        assertEquals("large", puzzle.getName(), "expected name");
+        assertEquals(PuzzleGenerator.generateEntries(100, 100, 1000, 40, 1), puzzle.getEntryList(), "expected the generated entries");
+        assertValidPuzzle(puzzle.getEntryList(), 100, 100, 40);
+        assertTrue(puzzle.getNumRows() <= 100 && puzzle.getNumCols() <= 100, "expected board within 100 x 100");
+    }
+}
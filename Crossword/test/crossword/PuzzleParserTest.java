@@ -1,7 +1,14 @@
 package crossword;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import edu.mit.eecs.parserlib.UnableToParseException;
@@ -11,6 +18,14 @@ import edu.mit.eecs.parserlib.UnableToParseException;
  * Tests for the PuzzleParser abstract data type.
  */
 class PuzzleParserTest {
+    
+    // TESTING STRATEGY
+    // partitions on PuzzleParser.parse():
+    //   string is a valid puzzle, string does not match the grammar, puzzle is inconsistent
+    //   whitespace around tokens: none, before a token, after a token, inside a word
+    //   strings: empty, with spaces at either end
+    //   result compared with parseWithParserlib(): same puzzle, both reject
+    //   error on line 1, on a later line
 
     @Test
     public void testAssertionsEnabled() {
@@ -45,5 +60,83 @@ class PuzzleParserTest {
         
         MinimalPuzzle puzzle = MinimalPuzzleParser.parse(puzzleString);
     }
+    
+    // covers valid puzzle, does not match the grammar, inconsistent puzzle, same puzzle, both reject
+    @Test
+    public void testParseSameAsParserlibPuzzleFiles() throws IOException {
+        for (String folder : List.of("puzzles", "invalidPuzzles")) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(Path.of(folder), "*.puzzle")) {
+                for (Path file : files) {
+                    assertSameAsParserlib(Files.readString(file, UTF_8));
+                }
+            }
+        }
+    }
+    
+    // covers whitespace none, before, after, inside a word; empty strings, strings with spaces at either end;
+    //        same puzzle, both reject
+    @Test
+    public void testParseSameAsParserlibWhitespace() {
+        final List<String> inputs = List.of(
+                ">>\"Easy\"\"d\"",
+                "  >> \"  Easy  \" \" d \" \r\n",
+                ">> \"\" \"\" (star,\"\",ACROSS,1,0)",
+                ">>\"Easy\"\"d\"( star,\"tw\",ACROSS,1,0)",
+                ">>\"Easy\"\"d\"(star ,\"tw\",ACROSS,1,0)",
+                ">>\"Easy\"\"d\"(s\nt a\tr,\"tw\",ACROSS,1,0)",
+                ">>\"Easy\"\"d\"(star, \"  tw  \" ,ACROSS,1,0)",
+                ">>\"Easy\"\"d\"(star,\"tw\", ACROSS ,1,0)",
+                ">>\"Easy\"\"d\"(star,\"tw\",DOWN ,1,0)",
+                ">>\"Easy\"\"d\"(star,\"tw\",ACROSS, 1,0)",
+                ">>\"Easy\"\"d\"(star,\"tw\",ACROSS,1 ,0)",
+                ">>\"Easy\"\"d\"(star,\"tw\",ACROSS,1,0 )",
+                ">>\"Easy\"\"d\"(star,\"tw\",ACROSS,1,0)(bee,\"x\",DOWN,0,0) ",
+                ">>\"Easy\"\"d\"(star,\"tw\",ACROSS,99999999999,0)",
+                ">>\"Easy\"\"d\"(star,\"tw\",ACROSS,1,0)junk",
+                ">>\"Ea\"sy\"\"d\"",
+                ">>\"Ea\tsy\"\"d\"",
+                ">>\"Easy\"\"d\"(Star,\"tw\",ACROSS,1,0)",
+                "");
+        for (String input : inputs) {
+            assertSameAsParserlib(input);
+        }
+    }
+    
+    // covers does not match the grammar, error on line 1, error on a later line
+    @Test
+    public void testParseErrorPosition() {
+        UnableToParseException first = assertThrows(UnableToParseException.class, () -> PuzzleParser.parse("> \"Easy\""),
+                "expected missing >> to be rejected");
+        assertTrue(first.getMessage().contains("(line 1 column 1)"), "expected error at start: " + first.getMessage());
+        
+        UnableToParseException later = assertThrows(UnableToParseException.class, 
+                () -> PuzzleParser.parse(">> \"Easy\"\n\"d\"\n(star,\"tw\",UP,1,0)"),
+                "expected unknown direction to be rejected");
+        assertTrue(later.getMessage().contains("(line 3 column 12)"), "expected error at direction: " + later.getMessage());
+    }
+    
+    /**
+     * Assert that PuzzleParser.parse() and parseWithParserlib() both make the same puzzle from input, or both reject it.
+     * parserlib's version rejects some strings by throwing NumberFormatException instead of UnableToParseException.
+     */
+    private static void assertSameAsParserlib(String input) {
+        Object expected;
+        try {
+            expected = PuzzleParser.parseWithParserlib(input).getTemplate();
+        } catch (UnableToParseException | NumberFormatException e) {
+            expected = "rejected";
+        } catch (IllegalArgumentException e) {
+            expected = "inconsistent";
+        }
+        Object actual;
+        try {
+            actual = PuzzleParser.parse(input).getTemplate();
+        } catch (UnableToParseException e) {
+            actual = "rejected";
+        } catch (IllegalArgumentException e) {
+            actual = "inconsistent";
+        }
+        assertEquals(expected, actual, "expected same result as parserlib for " + input);
+    }
 
 }
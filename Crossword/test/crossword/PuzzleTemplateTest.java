@@ -0,0 +1,98 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the PuzzleTemplate abstract data type.
+ */
+class PuzzleTemplateTest {
+
+    // TESTING STRATEGY
+    // partitions on PuzzleTemplate(entryList, name, description):
+    //   entries have no guesses, entries have guesses
+    //   entries are consistent, two entries cross at different letters, two entries overlap, two entries have the same word
+    //   two entries of the same direction share 0 cells, share 1 cell
+    // partitions on getEntryList(), getNumRows(), getNumCols(): entryList length 1, entryList length > 1
+    // partitions on getSolution(), getNumCellEntries(): cell on no entry, cell on 1 entry, cell on 2 entries
+    // partitions on equals(that), hashCode(): this equals that, this does not equal that
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    // covers entries have guesses, entries are consistent, entryList length > 1, cell on no entry, cell on 1 entry, cell on 2 entries
+    @Test
+    public void testCrossingEntries() {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 3, 0, "jello");
+        Entry entry2 = new Entry("goodbye", "a common farewell", Direction.DOWN, 1, 4);
+        PuzzleTemplate template = new PuzzleTemplate(List.of(entry1, entry2), "Easy", "An easy puzzle to get started");
+        assertEquals(List.of(new Entry("hello", "a common greeting", Direction.ACROSS, 3, 0), entry2), template.getEntryList(),
+                "expected entries without guesses");
+        assertEquals(8, template.getNumRows(), "expected correct number of rows");
+        assertEquals(5, template.getNumCols(), "expected correct number of columns");
+        assertEquals(40, template.getNumCells(), "expected correct number of cells");
+
+        assertEquals(0, template.getNumCellEntries(0), "expected no entry through (0, 0)");
+        assertEquals(1, template.getNumCellEntries(3 * 5), "expected one entry through (3, 0)");
+        assertEquals('h', template.getSolution(3 * 5), "expected first letter of hello");
+
+        int crossing = 3 * 5 + 4;
+        assertEquals(2, template.getNumCellEntries(crossing), "expected two entries through (3, 4)");
+        assertEquals('o', template.getSolution(crossing), "expected crossing letter");
+        for (int k = 0; k < 2; k++) {
+            int index = template.getCellEntry(crossing, k);
+            assertEquals(index == 0 ? 4 : 2, template.getCellOffset(crossing, k), "expected position of the crossing letter in entry " + index);
+        }
+        assertEquals(">> \"Easy\" \"An easy puzzle to get started\"\n\n"
+                + "(0, \"a common greeting\", ACROSS, 3, 0, 5, \"*****\")\n"
+                + "(1, \"a common farewell\", DOWN, 1, 4, 7, \"*******\")", template.getBlankClientString(), "expected client string without guesses");
+    }
+
+    // covers two entries cross at different letters, two entries overlap
+    @Test
+    public void testInconsistentEntries() {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 3, 0);
+        Entry entry2 = new Entry("bye", "a common farewell", Direction.DOWN, 1, 4);
+        assertThrows(IllegalArgumentException.class, () -> new PuzzleTemplate(List.of(entry1, entry2), "Easy", "An easy puzzle to get started"),
+                "expected entries crossing at different letters to be rejected");
+
+        Entry entry3 = new Entry("hello", "a common greeting", Direction.ACROSS, 0, 0);
+        Entry entry4 = new Entry("llama", "an animal", Direction.ACROSS, 0, 2);
+        assertThrows(IllegalArgumentException.class, () -> new PuzzleTemplate(List.of(entry3, entry4), "Easy", "An easy puzzle to get started"),
+                "expected overlapping entries to be rejected");
+    }
+
+    // covers entries have no guesses, entryList length 1, this equals that, this does not equal that
+    @Test
+    public void testEquality() {
+        Entry entry = new Entry("a", "article", Direction.ACROSS, 0, 0);
+        PuzzleTemplate template1 = new PuzzleTemplate(List.of(entry), "Easy", "An easy puzzle to get started");
+        PuzzleTemplate template2 = new PuzzleTemplate(List.of(new Entry("a", "article", Direction.ACROSS, 0, 0, "a")), "Easy", "An easy puzzle to get started");
+        PuzzleTemplate template3 = new PuzzleTemplate(List.of(entry), "Hard", "An easy puzzle to get started");
+        assertEquals(1, template1.getNumRows(), "expected correct number of rows");
+        assertEquals(1, template1.getNumCols(), "expected correct number of columns");
+        assertEquals(template1, template2, "expected guesses to be ignored");
+        assertEquals(template1.hashCode(), template2.hashCode(), "expected equal hash codes");
+        assertNotEquals(template1, template3, "expected different names to differ");
+    }
+
+    // covers two entries of the same direction share 1 cell, two entries have the same word
+    @Test
+    public void testEntriesSharingOneCell() {
+        Entry entry1 = new Entry("cat", "a pet", Direction.ACROSS, 0, 0);
+        Entry entry2 = new Entry("tea", "a drink", Direction.ACROSS, 0, 2);
+        PuzzleTemplate template = new PuzzleTemplate(List.of(entry1, entry2), "Easy", "An easy puzzle to get started");
+        assertEquals(2, template.getNumCellEntries(2), "expected both entries through (0, 2)");
+        assertEquals(5, template.getNumCols(), "expected correct number of columns");
+
+        Entry entry3 = new Entry("cat", "a pet", Direction.DOWN, 2, 0);
+        assertThrows(IllegalArgumentException.class, () -> new PuzzleTemplate(List.of(entry1, entry3), "Easy", "An easy puzzle to get started"),
+                "expected entries with the same word to be rejected");
+    }
+}
@@ -3,6 +3,8 @@ package crossword;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -22,8 +24,11 @@ class PuzzleTest {
     // partitions on getEntryList(): entryList length 1, entryList length >1
     // partitions on equals(that): this equals that, this does not equal that
     // partitions on hashCode(): two objects are equivalent (have same hash code), two objects have different hash codes
-    // partitions on makeClientString(): entryList length 1, entryList length > 1
-    // partitions on parseFromFile(): puzzle is valid according to grammar, puzzle is invalid according to grammar, filename is valid, filename is invalid
+    // partitions on makeClientString(): entryList length 1, entryList length > 1;
+    //   called once, called again with no mutation in between, called again after a mutation;
+    //   hot invariant checks enabled, disabled (RepChecks)
+    // partitions on parseFromFile(): puzzle is valid according to grammar, puzzle is invalid according to grammar, filename is valid, filename is invalid;
+    //   called from one thread, called from several threads at once
     // partitions on isComplete(): puzzle is complete, puzzle is not complete
     // two entries intersect, no intersection
     //
@@ -34,6 +39,13 @@ class PuzzleTest {
     // partitions on eraseWord(): 
     //   index is valid, index is out of bounds
     //   erase overwrites at least one already-guessed cell from another word, erase does not overwrite any already-guessed cells from another word
+    // partitions on applyGuesses():
+    //   number of operations: 0, >1
+    //   operations: guesses and erases of crossing entries, same entry guessed then erased
+    //   all operations valid, one index out of bounds, one guess of incorrect length
+    // partitions on setCell(), clearCell(), makeClientCellDeltaString():
+    //   cell: crossing of two entries, in one entry, not on the board, on the board but in no entry
+    //   letter: changes the cell, same as the cell, not a letter
     // partitions on check(): 
     //   no words have been guessed, words have been guessed;
     //   word has been guessed incorrectly, word has been guessed partially correctly, word has been guessed completely correctly
@@ -44,6 +56,16 @@ class PuzzleTest {
     //   player added does not exist; player added already existed
     //   player removed existed; player removed did not exist
     //
+    // partitions on makeClientDeltaString(), playersChangedAfter():
+    //   no change since version, >0 changes since version, version is not valid
+    //
+    // partitions on getVersion(), awaitVersionAfter():
+    //   mutation changes the state, mutation leaves the state unchanged
+    //   awaited version already passed, awaited version not yet reached
+    //
+    // partitions on Puzzle(template), getTemplate():
+    //   template of a puzzle with guesses, template of a puzzle without guesses
+    //
 
     @Test
     public void testAssertionsEnabled() {
@@ -89,6 +111,38 @@ class PuzzleTest {
                 + "(goodbye, \"a common farewell\", DOWN, 1, 4, \"*******\")", puzzle.toString(), "expected correct string rep of puzzle");
     }
     
+    // covers makeClientString() called again with no mutation in between, called again after a mutation
+    @Test
+    public void testClientStringAfterMutation() {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 3, 0);
+        Entry entry2 = new Entry("goodbye", "a common farewell", Direction.DOWN, 1, 4);
+        Puzzle puzzle = new Puzzle(List.of(entry1, entry2), "Easy", "An easy puzzle to get started");
+        String initial = puzzle.makeClientString();
+        assertEquals(initial, puzzle.makeClientString(), "expected same client string without a mutation");
+        puzzle.guessWord(0, "jello");
+        assertEquals(">> \"Easy\" \"An easy puzzle to get started\"\n\n"
+                + "(0, \"a common greeting\", ACROSS, 3, 0, 5, \"jello\")\n"
+                + "(1, \"a common farewell\", DOWN, 1, 4, 7, \"**o****\")", puzzle.makeClientString(), "expected client string to reflect guess");
+        puzzle.eraseWord(0);
+        assertEquals(initial, puzzle.makeClientString(), "expected client string to reflect erase");
+    }
+    
+    // covers makeClientString() hot invariant checks disabled
+    @Test
+    public void testClientStringHotChecksDisabled() {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 3, 0);
+        Puzzle puzzle = new Puzzle(List.of(entry1), "Easy", "An easy puzzle to get started");
+        RepChecks.setHotChecksEnabled(false);
+        try {
+            assertFalse(RepChecks.hotChecksEnabled(), "expected hot checks to be off");
+            puzzle.guessWord(0, "jello");
+            assertEquals(">> \"Easy\" \"An easy puzzle to get started\"\n\n"
+                    + "(0, \"a common greeting\", ACROSS, 3, 0, 5, \"jello\")", puzzle.makeClientString(), "expected same client string without checks");
+        } finally {
+            RepChecks.setHotChecksEnabled(true);
+        }
+    }
+    
     // covers this does not equal that, two objects have different hash codes
     @Test
     public void testTwoUnequalPuzzles() {
@@ -133,6 +187,32 @@ class PuzzleTest {
                 new Entry("loss", "This is not a gain", Direction.DOWN, 3, 6)), puzzle.getEntryList(), "expected correct entry list");
     }
 
+    // covers filename is valid, called from several threads at once
+    @Test
+    public void testParseFromFileConcurrently() throws IOException, InterruptedException {
+        final Puzzle expected = Puzzle.parseFromFile("puzzles/simple.puzzle");
+        final List<Puzzle> parsed = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final String filename = i % 2 == 0 ? "puzzles/simple.puzzle" : "puzzles/rhyme.puzzle";
+            threads.add(new Thread(() -> {
+                try {
+                    parsed.add(Puzzle.parseFromFile(filename));
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8, parsed.size(), "expected every parse to succeed");
+        assertEquals(4, parsed.stream().filter(expected::equals).count(), "expected every parse of the same file to be equal");
+    }
+    
     // covers filename is invalid
     @Test
     public void testInvalidFile() {
@@ -250,6 +330,29 @@ class PuzzleTest {
     }
     
     
+    // covers guess overwrites cells of several crossing entries, numRows determined by an ACROSS entry below a DOWN entry
+    @Test
+    public void testGuessWordMultipleCrossings() {
+        Entry entry1 = new Entry("cat", "feline companion", Direction.DOWN, 0, 1);
+        Entry entry2 = new Entry("tap", "a light knock", Direction.DOWN, 0, 3);
+        Entry entry3 = new Entry("stop", "halt", Direction.ACROSS, 2, 0);
+        Puzzle puzzle = new Puzzle(List.of(entry1, entry2, entry3), "Easy", "An easy puzzle to get started");
+        assertEquals(3, puzzle.getNumRows(), "expected correct number of rows");
+        assertEquals(4, puzzle.getNumCols(), "expected correct number of columns");
+        puzzle.guessWord(0, "cab");
+        puzzle.guessWord(1, "tip");
+        assertEquals("*b*p", puzzle.getEntryList().get(2).getGuess(), "expected crossing letters in guess");
+        puzzle.guessWord(2, "stop");
+        assertEquals("cat", puzzle.getEntryList().get(0).getGuess(), "expected correct guess");
+        assertEquals("tip", puzzle.getEntryList().get(1).getGuess(), "expected correct guess");
+        puzzle.check();
+        assertEquals("cat", puzzle.getEntryList().get(0).getGuess(), "expected correct guess");
+        assertEquals("t*p", puzzle.getEntryList().get(1).getGuess(), "expected correct guess");
+        assertEquals("stop", puzzle.getEntryList().get(2).getGuess(), "expected correct guess");
+        assertFalse(puzzle.getIsComplete(), "expected puzzle to be incomplete");
+    }
+    
+    
     // addPlayer(), removePlayer(), getPlayers() tests:
     
     // covers 0 players
@@ -291,5 +394,165 @@ class PuzzleTest {
     }
     
     
+    // applyGuesses() tests:
+    
+    // covers number of operations >1, guesses and erases of crossing entries, same entry guessed then erased, all operations valid
+    @Test
+    public void testApplyGuesses() {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 0, 0);
+        Entry entry2 = new Entry("hey", "a common greeting", Direction.DOWN, 0, 0);
+        Entry entry3 = new Entry("star", "twinkle twinkle", Direction.ACROSS, 4, 0);
+        Puzzle puzzle = new Puzzle(List.of(entry1, entry2, entry3), "Easy", "An easy puzzle to get started");
+        long version = puzzle.getVersion();
+        puzzle.applyGuesses(List.of(EntryGuess.guess(1, "hey"), EntryGuess.guess(2, "star"), EntryGuess.guess(0, "jello"), EntryGuess.erase(2)));
+        assertEquals(version + 1, puzzle.getVersion(), "expected a single change for the whole batch");
+        assertEquals("jello", puzzle.getEntryList().get(0).getGuess(), "expected later guess to overwrite the crossing letter");
+        assertEquals("jey", puzzle.getEntryList().get(1).getGuess(), "expected crossing letter from the later guess");
+        assertEquals("****", puzzle.getEntryList().get(2).getGuess(), "expected erase after the guess");
+        assertEquals("~~ " + version + "\n(0, \"jello\")\n(1, \"jey\")\n(2, \"****\")", puzzle.makeClientDeltaString(version), 
+                "expected every entry touched by the batch in the delta");
+    }
+    
+    // covers number of operations 0, one index out of bounds, one guess of incorrect length
+    @Test
+    public void testApplyGuessesInvalid() {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 0, 0);
+        Entry entry2 = new Entry("hey", "a common greeting", Direction.DOWN, 0, 0);
+        Puzzle puzzle = new Puzzle(List.of(entry1, entry2), "Easy", "An easy puzzle to get started");
+        puzzle.applyGuesses(List.of());
+        assertEquals(0, puzzle.getVersion(), "expected no change for an empty batch");
+        assertThrows(IllegalArgumentException.class, () -> puzzle.applyGuesses(List.of(EntryGuess.guess(0, "hello"), EntryGuess.erase(2))),
+                "expected exception for index out of bounds");
+        assertThrows(IllegalArgumentException.class, () -> puzzle.applyGuesses(List.of(EntryGuess.guess(0, "hello"), EntryGuess.guess(1, "he"))),
+                "expected exception for a guess of incorrect length");
+        assertEquals(0, puzzle.getVersion(), "expected no change after invalid batches");
+        assertEquals("*****", puzzle.getEntryList().get(0).getGuess(), "expected the valid guesses of invalid batches not applied");
+    }
+    
+    
+    // setCell(), clearCell(), makeClientCellDeltaString() tests:
     
+    // covers cell crossing of two entries, in one entry; letter changes the cell, same as the cell
+    @Test
+    public void testSetAndClearCell() {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 0, 0);
+        Entry entry2 = new Entry("hey", "a common greeting", Direction.DOWN, 0, 0);
+        Entry entry3 = new Entry("star", "twinkle twinkle", Direction.ACROSS, 4, 0);
+        Puzzle puzzle = new Puzzle(List.of(entry1, entry2, entry3), "Easy", "An easy puzzle to get started");
+        puzzle.guessWord(2, "star");
+        long version = puzzle.getVersion();
+        
+        puzzle.setCell(0, 0, 'j');
+        assertEquals(version + 1, puzzle.getVersion(), "expected a change");
+        assertEquals("j****", puzzle.getEntryList().get(0).getGuess(), "expected letter in the across entry");
+        assertEquals("j**", puzzle.getEntryList().get(1).getGuess(), "expected letter in the down entry");
+        assertEquals("~~ " + version + "\n(0, \"j****\")\n(1, \"j**\")", puzzle.makeClientCellDeltaString(0, 0, version), 
+                "expected both entries of the cell");
+        assertEquals(puzzle.makeClientDeltaString(version), puzzle.makeClientCellDeltaString(0, 0, version), 
+                "expected the same delta as for the whole puzzle");
+        
+        puzzle.setCell(0, 0, 'j');
+        assertEquals(version + 1, puzzle.getVersion(), "expected no change for the same letter");
+        
+        puzzle.clearCell(4, 3);
+        assertEquals(version + 2, puzzle.getVersion(), "expected a change");
+        assertEquals("sta*", puzzle.getEntryList().get(2).getGuess(), "expected only the cell erased");
+        assertEquals("~~ " + (version + 1) + "\n(2, \"sta*\")", puzzle.makeClientCellDeltaString(4, 3, version + 1), "expected the one entry of the cell");
+        assertEquals("j****", puzzle.getEntryList().get(0).getGuess(), "expected other entries unchanged");
+    }
+    
+    // covers cell not on the board, on the board but in no entry; letter not a letter
+    @Test
+    public void testSetCellInvalid() {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 0, 0);
+        Entry entry2 = new Entry("hey", "a common greeting", Direction.DOWN, 0, 0);
+        Puzzle puzzle = new Puzzle(List.of(entry1, entry2), "Easy", "An easy puzzle to get started");
+        assertThrows(IllegalArgumentException.class, () -> puzzle.setCell(5, 5, 'a'), "expected exception for a cell not on the board");
+        assertThrows(IllegalArgumentException.class, () -> puzzle.clearCell(1, 1), "expected exception for a cell in no entry");
+        assertThrows(IllegalArgumentException.class, () -> puzzle.makeClientCellDeltaString(1, 1, 0), "expected exception for a cell in no entry");
+        assertThrows(IllegalArgumentException.class, () -> puzzle.setCell(0, 1, '1'), "expected exception for a guess that is not a letter");
+        assertEquals(0, puzzle.getVersion(), "expected no change");
+    }
+    
+    
+    // getVersion(), awaitVersionAfter() tests:
+    
+    // covers mutation changes the state, mutation leaves the state unchanged, awaited version already passed
+    @Test
+    public void testVersion() throws InterruptedException {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 0, 0);
+        Entry entry2 = new Entry("hey", "a common greeting", Direction.DOWN, 0, 0);
+        Puzzle puzzle = new Puzzle(List.of(entry1, entry2), "Easy", "An easy puzzle to get started");
+        assertEquals(0, puzzle.getVersion(), "expected initial version");
+        puzzle.addPlayer("giannis");
+        puzzle.addPlayer("giannis");
+        assertEquals(1, puzzle.getVersion(), "expected version to change only when a player is added");
+        puzzle.guessWord(1, "hey");
+        puzzle.guessWord(1, "hey");
+        assertEquals(2, puzzle.getVersion(), "expected version to change only when the board changes");
+        puzzle.eraseWord(0);
+        assertEquals(3, puzzle.getVersion(), "expected version to change after erase");
+        puzzle.check();
+        puzzle.check();
+        assertEquals(3, puzzle.getVersion(), "expected version to stay the same after a check that changes nothing");
+        puzzle.removePlayer("giannis");
+        assertEquals(4, puzzle.getVersion(), "expected version to change when a player is removed");
+        assertEquals(4, puzzle.awaitVersionAfter(2), "expected no wait for a version already passed");
+    }
+    
+    // covers awaited version not yet reached
+    @Test
+    public void testAwaitVersionAfter() throws InterruptedException {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 0, 0);
+        Puzzle puzzle = new Puzzle(List.of(entry1), "Easy", "An easy puzzle to get started");
+        Thread guesser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {}
+            puzzle.guessWord(0, "hello");
+        });
+        guesser.start();
+        assertEquals(1, puzzle.awaitVersionAfter(0), "expected to wake up after the guess");
+        assertEquals("hello", puzzle.getEntryList().get(0).getGuess(), "expected guess to be visible after waking up");
+        guesser.join();
+    }
+    
+    // covers makeClientDeltaString(), playersChangedAfter(): no change since version, >0 changes since version, version is not valid
+    @Test
+    public void testClientDeltaString() {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 0, 0);
+        Entry entry2 = new Entry("hey", "a common greeting", Direction.DOWN, 0, 0);
+        Entry entry3 = new Entry("star", "twinkle twinkle", Direction.ACROSS, 4, 0);
+        Puzzle puzzle = new Puzzle(List.of(entry1, entry2, entry3), "Easy", "An easy puzzle to get started");
+        puzzle.addPlayer("giannis");
+        long version = puzzle.getVersion();
+        assertEquals("~~ " + version, puzzle.makeClientDeltaString(version), "expected empty delta");
+        assertFalse(puzzle.playersChangedAfter(version), "expected players unchanged");
+        puzzle.guessWord(1, "hey");
+        assertEquals("~~ " + version + "\n(0, \"h****\")\n(1, \"hey\")", puzzle.makeClientDeltaString(version), "expected delta with crossing entries");
+        assertTrue(puzzle.playersChangedAfter(version - 1), "expected players changed");
+        assertThrows(IllegalArgumentException.class, () -> {puzzle.makeClientDeltaString(puzzle.getVersion() + 1);}, "expected exception for future version");
+    }
+    
+    // covers Puzzle(template), getTemplate(): template of a puzzle with guesses
+    @Test
+    public void testNewPuzzleFromTemplate() {
+        Entry entry1 = new Entry("hello", "a common greeting", Direction.ACROSS, 3, 0);
+        Entry entry2 = new Entry("goodbye", "a common farewell", Direction.DOWN, 1, 4);
+        Puzzle puzzle1 = new Puzzle(List.of(entry1, entry2), "Easy", "An easy puzzle to get started");
+        String blank = puzzle1.makeClientString();
+        puzzle1.guessWord(0, "hello");
+        puzzle1.addPlayer("donald");
+        
+        Puzzle puzzle2 = new Puzzle(puzzle1.getTemplate());
+        assertSame(puzzle1.getTemplate(), puzzle2.getTemplate(), "expected template to be shared");
+        assertEquals(blank, puzzle2.makeClientString(), "expected no guesses in the new puzzle");
+        assertEquals(Set.of(), puzzle2.getPlayers(), "expected no players in the new puzzle");
+        assertEquals(0, puzzle2.getVersion(), "expected initial version");
+        
+        puzzle2.guessWord(1, "goodbye");
+        assertEquals("hello", puzzle1.getEntryList().get(0).getGuess(), "expected guesses of the first puzzle unchanged");
+        assertEquals("**o****", puzzle1.getEntryList().get(1).getGuess(), "expected guesses of the first puzzle unchanged");
+        assertEquals("****o", puzzle2.getEntryList().get(0).getGuess(), "expected crossing letter in the new puzzle");
+    }
 }
@@ -0,0 +1,84 @@
+package crossword;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for PuzzleValidator.
+ */
+class PuzzleValidatorTest {
+
+    // TESTING STRATEGY
+    // partitions on validate():
+    //   number of violations: 0, 1, >1
+    //   violation: crossing with different letters, overlap, same word, board too large
+    //   overlapping entries go ACROSS, go DOWN
+    //   same-direction entries share 0 cells, share 1 cell
+    // partitions on validateLayout(): entries overlap, entries do not overlap
+
+    @Test
+    public void testAssertionsEnabled() {
+        assertThrows(AssertionError.class, () -> { assert false; },
+                "make sure assertions are enabled with VM argument '-ea'");
+    }
+
+    // covers 0 violations, same-direction entries share 1 cell
+    @Test
+    public void testConsistentEntries() {
+        List<Entry> entries = List.of(new Entry("cat", "a pet", Direction.ACROSS, 0, 0),
+                                      new Entry("tea", "a drink", Direction.ACROSS, 0, 2),
+                                      new Entry("cow", "a farm animal", Direction.DOWN, 0, 0));
+        assertEquals(List.of(), PuzzleValidator.validate(entries), "expected no violations");
+    }
+
+    // covers 1 violation, crossing with different letters
+    @Test
+    public void testInconsistentPuzzleFile() throws IOException {
+        // the first two entries of inconsistent.puzzle
+        List<Entry> entries = List.of(new Entry("star", "twinkle twinkle", Direction.ACROSS, 0, 0),
+                                      new Entry("market", "Farmers ______", Direction.DOWN, 0, 2));
+        assertEquals(List.of("entry 0 (star) and entry 1 (market) cross at row 0, column 2 with different letters 'a' and 'm'"),
+                PuzzleValidator.validate(entries), "expected the crossing of inconsistent.puzzle");
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> Puzzle.parseFromFile("puzzles/inconsistent.puzzle"),
+                "expected inconsistent puzzle to be rejected");
+        assertEquals("entry 0 (star) and entry 1 (market) cross at row 0, column 2 with different letters 'a' and 'm'", error.getMessage(),
+                "expected the violation in the message");
+    }
+
+    // covers >1 violations, overlap, same word, overlapping entries go ACROSS, go DOWN
+    @Test
+    public void testManyViolations() {
+        List<Entry> entries = List.of(new Entry("hello", "a greeting", Direction.ACROSS, 1, 0),
+                                      new Entry("hello", "a greeting again", Direction.DOWN, 3, 7),
+                                      new Entry("llama", "an animal", Direction.ACROSS, 1, 2),
+                                      new Entry("abc", "letters", Direction.DOWN, 3, 7));
+        assertEquals(List.of("entry 0 (hello) and entry 2 (llama) overlap from row 1, column 2",
+                             "entry 1 (hello) and entry 3 (abc) cross at row 3, column 7 with different letters 'h' and 'a'",
+                             "entry 0 (hello) and entry 1 (hello) have the same word"),
+                PuzzleValidator.validate(entries), "expected every violation");
+    }
+
+    // covers board too large
+    @Test
+    public void testBoardTooLarge() {
+        List<Entry> entries = List.of(new Entry("far", "far down", Direction.DOWN, 2_000_000_000, 0),
+                                      new Entry("wide", "far across", Direction.ACROSS, 0, 2_000_000_000));
+        assertEquals(List.of("the board of 2000000003 x 2000000004 cells is too large"), PuzzleValidator.validate(entries),
+                "expected board to be rejected before allocating it");
+    }
+
+    // covers validateLayout() entries overlap, entries do not overlap
+    @Test
+    public void testValidateLayout() {
+        MinimalEntry across = new MinimalEntry(0, "a greeting", Direction.ACROSS, 1, 0, 5, "*****");
+        MinimalEntry down = new MinimalEntry(1, "a farewell", Direction.DOWN, 0, 2, 3, "***");
+        MinimalEntry overlapping = new MinimalEntry(2, "a word", Direction.ACROSS, 1, 3, 4, "****");
+        assertEquals(List.of(), PuzzleValidator.validateLayout(List.of(across, down)), "expected no violations");
+        assertEquals(List.of("entry 0 and entry 2 overlap from row 1, column 3"), PuzzleValidator.validateLayout(List.of(across, down, overlapping)),
+                "expected the overlap");
+    }
+}
@@ -2,17 +2,30 @@ package crossword;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URI;
 import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
@@ -33,7 +46,8 @@ public class WebServerTest {
     //   valid; invalid (no playerID specified)
     //
     // handleCreateGame(): (/createGame/<playerID>/<puzzle>)
-    //   valid; invalid (no playerID specified); invalid (no puzzle specified); invalid (puzzle not in directory)   
+    //   valid; invalid (no playerID specified); invalid (no puzzle specified); invalid (puzzle not in directory); invalid (puzzle file not valid)
+    //   catalog: eager; lazy
     //
     // handleGetAllActiveGames(): (/getAllActiveGames/<playerID>)
     //   number of active games: 0; 1; >1;
@@ -50,6 +64,16 @@ public class WebServerTest {
     //   index: valid; invalid (out of bounds); invalid (not a number)
     //   guess: valid; invalid (wrong length); invalid (not all characters)
     //
+    // handleGuessBatch(): (/guessBatch/<playerID> with guesses and erases in the body)
+    //   playerID: valid; invalid (playerID not in any game)
+    //   body: valid; invalid (line of neither form)
+    //   operations: all valid, >1 guesses and an erase; one invalid (index out of bounds)
+    //
+    // handleSetCell(), handleClearCell(): (/setCell/<playerID>/row/col/letter, /clearCell/<playerID>/row/col)
+    //   playerID: valid; invalid (playerID not in any game)
+    //   cell: crossing of two entries; in no entry; invalid (not a number)
+    //   letter: valid; invalid (not a single letter)
+    //
     // handleErase(): (/erase/<playerID>/index)
     //   playerID: valid; invalid (no playerID specified); invalid (playerID not in any game)
     //   index: valid; invalid (out of bounds); invalid (not a number)
@@ -57,8 +81,24 @@ public class WebServerTest {
     // handleCheckPuzzle(): (/check/<playerID>)
     //    playerID: valid; invalid (no playerID specified); invalid (playerID not in any game)
     //
-    // handleWatchGame(): (/watchGame/<playerID>)
+    // handleWatchGame(): (/watchGame/<playerID>?since=<version>)
     //    playerID: valid; invalid (no playerID specified); invalid (playerID not in any game)
+    //    since: omitted; older than the current version; newer than the current version; invalid (not a number)
+    //    delta: omitted; true
+    //
+    // handleStreamGame(): (/streamGame/<playerID>?since=<version>)
+    //    playerID: valid; invalid (playerID not in any game)
+    //    since: omitted; older than the current version
+    //    events: snapshot; delta; player left the game, ending the stream
+    //
+    // concurrency:
+    //    players of different games act at the same time; a watcher of one game is blocked while another game changes
+    //    10,000 watchers of one game wait at the same time, on virtual threads where available
+    //
+    // transport:
+    //    JDK; NIO
+    //    NIO: requests pipelined on one connection; watcher waiting for a change; event stream; no context for the path;
+    //         tens of thousands of requests with no context pipelined on one connection
     //
     
 
@@ -164,6 +204,26 @@ public class WebServerTest {
         server.stop();
     }
     
+    // covers handleCreateGame(): valid, invalid (puzzle file not valid), catalog lazy
+    @Test
+    public void testCreateGameLazyCatalog() throws IOException {
+        PuzzleCatalog catalog = PuzzleCatalog.lazy(Map.of("simple", "puzzles/simple.puzzle", "invalid", "invalidPuzzles/invalidsimple.puzzle"), 1_000);
+        final WebServer server = new WebServer(catalog, 4949);
+        server.start();
+        
+        final URL createGameURL = new URL("http://localhost:" + server.port() + "/createGame/" + "giannis/" + "simple");
+        final HttpURLConnection connection = (HttpURLConnection) createGameURL.openConnection();
+        assertEquals(SUCCESS, connection.getResponseCode(), "Expected 200 Success response code");
+        assertEquals(1, catalog.getCachedTemplateCount(), "expected puzzle parsed for the game");
+        assertEquals(new Puzzle(Puzzle.parseFromFile("puzzles/simple.puzzle").getTemplate()), server.getGameIDToPuzzle().get("0"), "expected new game on the puzzle");
+        
+        final URL invalidURL = new URL("http://localhost:" + server.port() + "/createGame/" + "giannis/" + "invalid");
+        final HttpURLConnection invalidConnection = (HttpURLConnection) invalidURL.openConnection();
+        assertEquals(ERROR, invalidConnection.getResponseCode(), "Expected 404 Error response code");
+        
+        server.stop();
+    }
+    
     // covers handleCreateGame(): invalid (no player ID), output 404
     @Test
     public void testCreateGameNoPlayerID() throws IOException {
@@ -627,6 +687,148 @@ public class WebServerTest {
     }
     
     
+    // handleGuessBatch() tests
+    
+    /**
+     * Send a batch of guesses to the server
+     * 
+     * @return the response to /guessBatch/playerID with body
+     */
+    private static HttpResponse<String> sendGuessBatch(WebServer server, String playerID, String body) throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/guessBatch/" + playerID))
+                .POST(HttpRequest.BodyPublishers.ofString(body, UTF_8)).build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString(UTF_8));
+    }
+    
+    // covers handleGuessBatch(): playerID valid, body valid, >1 guesses and an erase
+    @Test
+    public void testHandleGuessBatchValid() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of(puzzleName1, validPuzzle1)), 4949);
+        server.start();
+        new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1).openStream().close();
+        
+        final HttpClient client = HttpClient.newHttpClient();
+        final CompletableFuture<HttpResponse<String>> watch = client.sendAsync(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/watchGame/donald?since=1&delta=true")).build(),
+                HttpResponse.BodyHandlers.ofString(UTF_8));
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (server.getWaitingWatcherCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        
+        final HttpResponse<String> batch = sendGuessBatch(server, "donald", "guess 0 star\nguess 1 market\n\nerase 0\n");
+        assertEquals(SUCCESS, batch.statusCode(), "Expected 200 Success response code");
+        assertEquals("", batch.body().trim().split("[|]", -1)[1], "expected no error message");
+        final Puzzle puzzle = server.getGameIDToPuzzle().get("0");
+        assertEquals(2, puzzle.getVersion(), "expected a single change for the whole batch");
+        assertEquals("****", puzzle.getEntryList().get(0).getGuess(), "expected the erase applied after the guess");
+        assertEquals("m*rket", puzzle.getEntryList().get(1).getGuess(), "expected the guess, less the letter erased with entry 0");
+        
+        final String[] watched = watch.join().body().trim().split("[|]");
+        assertEquals("~~ 1\n(0, \"****\")\n(1, \"m*rket\")\n(2, \"k*****\")\n(4, \"**e\")\n(5, \"t*******\")", watched[0],
+                "expected one delta for the whole batch, with the entries crossing entry 1");
+        assertEquals("2", watched[3], "expected version after the batch");
+        
+        server.stop();
+    }
+    
+    // covers handleGuessBatch(): playerID invalid (not in any game), body invalid, one operation invalid
+    @Test
+    public void testHandleGuessBatchInvalid() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of(puzzleName1, validPuzzle1)), 4949);
+        server.start();
+        new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1).openStream().close();
+        
+        assertEquals(ERROR, sendGuessBatch(server, "zach", "guess 0 star").statusCode(), "Expected 404 Error response code");
+        assertEquals(ERROR, sendGuessBatch(server, "donald", "guess 0 star\nguess star 0").statusCode(), "Expected 404 Error response code");
+        
+        final HttpResponse<String> batch = sendGuessBatch(server, "donald", "guess 0 star\nguess 99 abc");
+        assertEquals(SUCCESS, batch.statusCode(), "Expected 200 Success response code");
+        assertTrue(batch.body().trim().split("[|]")[1].startsWith("No guess was applied"), "expected an error message");
+        final Puzzle puzzle = server.getGameIDToPuzzle().get("0");
+        assertEquals(1, puzzle.getVersion(), "expected no change");
+        assertEquals("****", puzzle.getEntryList().get(0).getGuess(), "expected the valid guess not applied either");
+        
+        server.stop();
+    }
+    
+    
+    // handleSetCell(), handleClearCell() tests
+    
+    // covers handleSetCell(), handleClearCell(): playerID valid, cell crossing of two entries, letter valid
+    @Test
+    public void testHandleSetAndClearCell() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of(puzzleName1, validPuzzle1)), 4949);
+        server.start();
+        new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1).openStream().close();
+        
+        // a watcher waits for the change after version 1
+        final URL watchURL = new URL("http://localhost:" + server.port() + "/watchGame/" + "donald?since=1&delta=true");
+        final HttpURLConnection watchConnection = (HttpURLConnection) watchURL.openConnection();
+        assertEquals(SUCCESS, watchConnection.getResponseCode(), "Expected 200 response code");
+        
+        // row 1, column 2 is where star (entry 0) crosses market (entry 1)
+        final URL setCellURL = new URL("http://localhost:" + server.port() + "/setCell/" + "donald/1/2/a");
+        final HttpURLConnection setCellConnection = (HttpURLConnection) setCellURL.openConnection();
+        assertEquals(SUCCESS, setCellConnection.getResponseCode(), "Expected 200 response code");
+        String[] response = new BufferedReader(new InputStreamReader(setCellConnection.getInputStream(), UTF_8))
+                .lines().collect(Collectors.joining("\n")).split("[|]", -1);
+        assertEquals("~~ 1\n(0, \"**a*\")\n(1, \"*a****\")", response[0], "expected only the entries of the cell");
+        assertEquals("2", response[1], "expected version after the change");
+        assertEquals("", response[2], "expected no error message");
+        
+        String[] watched = new BufferedReader(new InputStreamReader(watchConnection.getInputStream(), UTF_8))
+                .lines().collect(Collectors.joining("\n")).split("[|]");
+        assertEquals("~~ 1\n(0, \"**a*\")\n(1, \"*a****\")", watched[0], "expected the watcher to get the one-cell change");
+        
+        final URL clearCellURL = new URL("http://localhost:" + server.port() + "/clearCell/" + "donald/1/2");
+        final HttpURLConnection clearCellConnection = (HttpURLConnection) clearCellURL.openConnection();
+        assertEquals(SUCCESS, clearCellConnection.getResponseCode(), "Expected 200 response code");
+        response = new BufferedReader(new InputStreamReader(clearCellConnection.getInputStream(), UTF_8))
+                .lines().collect(Collectors.joining("\n")).split("[|]", -1);
+        assertEquals("~~ 2\n(0, \"****\")\n(1, \"******\")", response[0], "expected the cell erased");
+        assertEquals("3", response[1], "expected version after the change");
+        
+        server.stop();
+    }
+    
+    // covers handleSetCell(), handleClearCell(): playerID invalid (not in any game), cell in no entry, cell invalid, letter invalid
+    @Test
+    public void testHandleSetCellInvalid() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of(puzzleName1, validPuzzle1)), 4949);
+        server.start();
+        new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1).openStream().close();
+        
+        for (String invalid : List.of("/setCell/zach/1/2/a", "/setCell/donald/1/2/ab", "/setCell/donald/x/2/a", "/clearCell/donald/1")) {
+            final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.port() + invalid).openConnection();
+            assertEquals(ERROR, connection.getResponseCode(), "Expected 404 Error response code for " + invalid);
+        }
+        
+        final URL noEntryURL = new URL("http://localhost:" + server.port() + "/setCell/" + "donald/0/0/a");
+        final HttpURLConnection noEntryConnection = (HttpURLConnection) noEntryURL.openConnection();
+        assertEquals(SUCCESS, noEntryConnection.getResponseCode(), "Expected 200 response code");
+        final String[] response = new BufferedReader(new InputStreamReader(noEntryConnection.getInputStream(), UTF_8))
+                .lines().collect(Collectors.joining("\n")).split("[|]");
+        assertEquals("~~ 1", response[0], "expected an empty delta");
+        assertEquals("1", response[1], "expected no change");
+        assertTrue(response[2].startsWith("Please enter a row and column"), "expected an error message");
+        
+        server.stop();
+    }
+    
+    
     // handleErase() tests
     
     // covers handleErase(): playerID(): invalid (no playerID specified); invalid (playerID not in any game)
@@ -990,5 +1192,461 @@ public class WebServerTest {
         server.stop();
     }
     
-
+    
+    // covers handleWatchGame(): valid, since older than the current version
+    @Test
+    public void testHandleWatchGameSinceOldVersion() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        Map<String, Puzzle> puzzleNameToPuzzle = Map.of(puzzleName1, validPuzzle1);
+        Map<String, String> puzzleNameToPuzzleDirectory = Map.of(puzzleName1, puzzlepath1);
+        final WebServer server = new WebServer(puzzleNameToPuzzle, puzzleNameToPuzzleDirectory, 4949);
+        server.start();
+        
+        // create game (version 1 once the creator has joined) and guess (version 2)
+        final URL createGameURL = new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1);
+        final BufferedReader createReader = new BufferedReader(new InputStreamReader(createGameURL.openStream(), UTF_8));
+        String[] createResponse = createReader.lines().collect(Collectors.joining()).split("[|]");
+        assertEquals("1", createResponse[2], "expected version of the new game");
+        final URL guessURL = new URL ("http://localhost:" + server.port() + "/guess/" +"donald/" + "0/star");
+        guessURL.openStream().close();
+        
+        // a watcher that missed the guess does not block
+        final URL watchURL = new URL("http://localhost:" + server.port() + "/watchGame/" + "donald?since=1");
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(watchURL.openStream(), UTF_8));
+        String[] response = reader.lines().collect(Collectors.joining()).split("[|]");
+        assertEquals(4, response.length, "expected puzzle, players, completion and version");
+        assertTrue(response[0].contains("\"star\""), "expected guess in the puzzle");
+        assertEquals("donald,", response[1], "expected players");
+        assertEquals("false", response[2], "expected incomplete puzzle");
+        assertEquals("2", response[3], "expected version after the guess");
+        
+        server.stop();
+    }
+    
+    // covers handleWatchGame(): valid, since newer than the current version, delta true
+    @Test
+    public void testHandleWatchGameSinceNewerVersion() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        Map<String, Puzzle> puzzleNameToPuzzle = Map.of(puzzleName1, validPuzzle1);
+        Map<String, String> puzzleNameToPuzzleDirectory = Map.of(puzzleName1, puzzlepath1);
+        final WebServer server = new WebServer(puzzleNameToPuzzle, puzzleNameToPuzzleDirectory, 4949);
+        server.start();
+        
+        final URL createGameURL = new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1);
+        createGameURL.openStream().close();
+        
+        // a version the game never reached (e.g. from another game) is answered at once with a full snapshot
+        final URL watchURL = new URL("http://localhost:" + server.port() + "/watchGame/" + "donald?since=100&delta=true");
+        final HttpURLConnection connection = (HttpURLConnection) watchURL.openConnection();
+        connection.setReadTimeout(5000);
+        assertEquals(SUCCESS, connection.getResponseCode(), "Expected 200 response code");
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), UTF_8));
+        String[] response = reader.lines().collect(Collectors.joining()).split("[|]");
+        assertEquals(4, response.length, "expected puzzle, players, completion and version");
+        assertFalse(response[0].startsWith("~~"), "expected a full snapshot, not a delta");
+        assertEquals("donald,", response[1], "expected players");
+        assertEquals("false", response[2], "expected incomplete puzzle");
+        assertEquals("1", response[3], "expected current version of the game");
+        
+        server.stop();
+    }
+    
+    // covers handleWatchGame(): invalid (since not a number)
+    @Test
+    public void testHandleWatchGameInvalidSince() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        Map<String, Puzzle> puzzleNameToPuzzle = Map.of(puzzleName1, validPuzzle1);
+        Map<String, String> puzzleNameToPuzzleDirectory = Map.of(puzzleName1, puzzlepath1);
+        final WebServer server = new WebServer(puzzleNameToPuzzle, puzzleNameToPuzzleDirectory, 4949);
+        server.start();
+        
+        final URL createGameURL = new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1);
+        createGameURL.openStream().close();
+        
+        final URL watchURL = new URL("http://localhost:" + server.port() + "/watchGame/" + "donald?since=abc");
+        final HttpURLConnection connection = (HttpURLConnection) watchURL.openConnection();
+        assertEquals(ERROR, connection.getResponseCode(), "Expected 404 Error response code");
+        
+        server.stop();
+    }
+    
+    // covers handleWatchGame(): valid, since older than the current version, delta true
+    @Test
+    public void testHandleWatchGameDelta() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        Map<String, Puzzle> puzzleNameToPuzzle = Map.of(puzzleName1, validPuzzle1);
+        Map<String, String> puzzleNameToPuzzleDirectory = Map.of(puzzleName1, puzzlepath1);
+        final WebServer server = new WebServer(puzzleNameToPuzzle, puzzleNameToPuzzleDirectory, 4949);
+        server.start();
+        
+        // create game (version 1), guess (version 2), join (version 3)
+        final URL createGameURL = new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1);
+        createGameURL.openStream().close();
+        final URL guessURL = new URL ("http://localhost:" + server.port() + "/guess/" +"donald/" + "0/star");
+        guessURL.openStream().close();
+        
+        final URL watchURL1 = new URL("http://localhost:" + server.port() + "/watchGame/" + "donald?since=1&delta=true");
+        final BufferedReader reader1 = new BufferedReader(new InputStreamReader(watchURL1.openStream(), UTF_8));
+        String[] response1 = reader1.lines().collect(Collectors.joining("\n")).split("[|]");
+        assertEquals(List.of("~~ 1\n(0, \"star\")\n(1, \"*a****\")", "=", "false", "2"), List.of(response1), "expected only the guess and its crossing entry");
+        
+        final URL joinGameURL = new URL("http://localhost:" + server.port() + "/joinExistingGame/" + "zach/" + "0");
+        joinGameURL.openStream().close();
+        final URL watchURL2 = new URL("http://localhost:" + server.port() + "/watchGame/" + "donald?since=2&delta=true");
+        final BufferedReader reader2 = new BufferedReader(new InputStreamReader(watchURL2.openStream(), UTF_8));
+        String[] response2 = reader2.lines().collect(Collectors.joining("\n")).split("[|]");
+        assertEquals("~~ 2", response2[0], "expected no guesses");
+        assertEquals(Set.of("donald", "zach"), Set.of(response2[1].split(",")), "expected the new players");
+        assertEquals("3", response2[3], "expected version after join");
+        
+        server.stop();
+    }
+    
+    /**
+     * Read the next server-sent event of a stream
+     * 
+     * @return the id of the event and its data, or empty if the stream ended
+     */
+    private static List<String> readEvent(BufferedReader reader) throws IOException {
+        String id = "";
+        final List<String> data = new ArrayList<>();
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.startsWith("id: ")) {
+                id = line.substring("id: ".length());
+            } else if (line.startsWith("data: ")) {
+                data.add(line.substring("data: ".length()));
+            } else if (line.isEmpty()) {
+                return List.of(id, String.join("\n", data));
+            }
+        }
+        return List.of();
+    }
+    
+    // covers handleStreamGame(): valid, since omitted, snapshot, delta, player left the game
+    @Test
+    public void testHandleStreamGame() throws IOException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of(puzzleName1, validPuzzle1)), 4949);
+        server.start();
+        new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1).openStream().close();
+        
+        final URL streamURL = new URL("http://localhost:" + server.port() + "/streamGame/" + "donald");
+        final HttpURLConnection connection = (HttpURLConnection) streamURL.openConnection();
+        assertEquals(SUCCESS, connection.getResponseCode(), "Expected 200 response code");
+        assertTrue(connection.getContentType().startsWith("text/event-stream"), "expected an event stream");
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), UTF_8));
+        
+        final List<String> snapshot = readEvent(reader);
+        assertEquals("1", snapshot.get(0), "expected id of the first version");
+        String[] response = snapshot.get(1).split("[|]");
+        assertTrue(response[0].startsWith(">>"), "expected a full snapshot");
+        assertEquals("donald,", response[1], "expected players");
+        assertEquals("1", response[3], "expected version of the new game");
+        
+        new URL("http://localhost:" + server.port() + "/guess/" + "donald/0/star").openStream().close();
+        final List<String> guess = readEvent(reader);
+        assertEquals("2", guess.get(0), "expected id of the version after the guess");
+        response = guess.get(1).split("[|]");
+        assertEquals("~~ 1\n(0, \"star\")\n(1, \"*a****\")", response[0], "expected only the guess and the entry it crosses");
+        assertEquals("=", response[1], "expected unchanged players");
+        
+        new URL("http://localhost:" + server.port() + "/exitGame/" + "donald").openStream().close();
+        final List<String> exit = readEvent(reader);
+        response = exit.get(1).split("[|]");
+        assertEquals("~~ 2", response[0], "expected no guesses");
+        assertEquals("", response[1], "expected no players left");
+        assertEquals(List.of(), readEvent(reader), "expected the stream to end");
+        
+        server.stop();
+    }
+    
+    // covers handleStreamGame(): valid, since older than the current version; invalid (playerID not in any game)
+    @Test
+    public void testHandleStreamGameSinceOldVersion() throws IOException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of(puzzleName1, validPuzzle1)), 4949);
+        server.start();
+        new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1).openStream().close();
+        new URL("http://localhost:" + server.port() + "/guess/" + "donald/0/star").openStream().close();
+        
+        final HttpURLConnection invalid = (HttpURLConnection) new URL("http://localhost:" + server.port() + "/streamGame/" + "zach").openConnection();
+        assertEquals(ERROR, invalid.getResponseCode(), "Expected 404 Error response code");
+        
+        // a client reconnecting after version 1 gets the guess it missed first
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.port() + "/streamGame/" + "donald").openConnection();
+        connection.setRequestProperty("Last-Event-ID", "1");
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), UTF_8));
+        final List<String> missed = readEvent(reader);
+        assertEquals("2", missed.get(0), "expected id of the version after the guess");
+        assertEquals("~~ 1\n(0, \"star\")\n(1, \"*a****\")", missed.get(1).split("[|]")[0], "expected only the missed guess");
+        connection.disconnect();
+        
+        server.stop();
+    }
+    
+    // covers concurrency: players of different games act at the same time, a watcher of one game is blocked while another game changes
+    @Test
+    public void testSeparateGamesConcurrently() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        Map<String, Puzzle> puzzleNameToPuzzle = Map.of(puzzleName1, validPuzzle1);
+        Map<String, String> puzzleNameToPuzzleDirectory = Map.of(puzzleName1, puzzlepath1);
+        final WebServer server = new WebServer(puzzleNameToPuzzle, puzzleNameToPuzzleDirectory, 4949);
+        server.start();
+        
+        // donald plays game 0 and zach plays game 1, both at version 1
+        new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1).openStream().close();
+        new URL("http://localhost:" + server.port() + "/createGame/" + "zach/" + puzzleName1).openStream().close();
+        
+        // a watcher of game 0 waits for its next change
+        final URL watchURL = new URL("http://localhost:" + server.port() + "/watchGame/" + "donald?since=1");
+        final HttpURLConnection watchConnection = (HttpURLConnection) watchURL.openConnection();
+        assertEquals(SUCCESS, watchConnection.getResponseCode(), "Expected 200 response code");
+        
+        // each player guesses and erases 20 times in their own game, at the same time
+        final int rounds = 20;
+        final List<Thread> players = List.of("donald", "zach").stream().map(player -> new Thread(() -> {
+            try {
+                for (int i = 0; i < rounds; i++) {
+                    new URL("http://localhost:" + server.port() + "/guess/" + player + "/0/star").openStream().close();
+                    new URL("http://localhost:" + server.port() + "/erase/" + player + "/0").openStream().close();
+                }
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        })).collect(Collectors.toList());
+        for (Thread player : players) {
+            player.start();
+        }
+        for (Thread player : players) {
+            player.join();
+        }
+        
+        // every guess and erase changed its own game, and no other
+        assertEquals(1 + 2 * rounds, server.getGameIDToPuzzle().get("0").getVersion(), "expected every change of game 0 counted");
+        assertEquals(1 + 2 * rounds, server.getGameIDToPuzzle().get("1").getVersion(), "expected every change of game 1 counted");
+        
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(watchConnection.getInputStream(), UTF_8));
+        String[] response = reader.lines().collect(Collectors.joining()).split("[|]");
+        assertEquals("donald,", response[1], "expected players of game 0");
+        
+        server.stop();
+    }
+    
+    // covers concurrency: 10,000 watchers of one game wait at the same time
+    @Test
+    public void testTenThousandWatchers() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        final int watchers = 10_000;
+        
+        // every watcher holds a socket at both ends of its connection in this process, so the test needs a limit of open files
+        // of at least 20,000 plus what is already open (and some to spare for the server); it is skipped where the limit is lower
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            final com.sun.management.UnixOperatingSystemMXBean os =
+                    (com.sun.management.UnixOperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+            final long needed = 2L * watchers + os.getOpenFileDescriptorCount() + 500;
+            assumeTrue(os.getMaxFileDescriptorCount() >= needed, "needs a limit of at least " + needed 
+                    + " open files for " + watchers + " watchers, but the limit is " + os.getMaxFileDescriptorCount());
+        }
+        
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of(puzzleName1, validPuzzle1)), 4949, true);
+        server.start();
+        new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1).openStream().close();
+        
+        // all the watchers wait for the first change after version 1
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final HttpRequest watch = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/watchGame/donald?since=1")).build();
+        final List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < watchers; i++) {
+            responses.add(client.sendAsync(watch, HttpResponse.BodyHandlers.ofString()));
+        }
+        final long deadline = System.currentTimeMillis() + 120_000;
+        while (server.getWaitingWatcherCount() < watchers && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(watchers, server.getWaitingWatcherCount(), "expected every watcher waiting at the same time");
+        
+        new URL("http://localhost:" + server.port() + "/guess/donald/0/star").openStream().close();
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            final HttpResponse<String> watched = response.join();
+            assertEquals(SUCCESS, watched.statusCode(), "expected 200 response code");
+            assertEquals("2", watched.body().trim().split("[|]")[3], "expected version after the guess");
+        }
+        assertEquals(0, server.getWaitingWatcherCount(), "expected no watcher left waiting");
+        
+        server.stop();
+    }
+    
+    /**
+     * Read the next response from a connection to a NioHttpServer, whose body has a Content-Length or is chunked
+     * 
+     * @return the status line of the response and its body
+     */
+    private static List<String> readResponse(InputStream in) throws IOException {
+        final String statusLine = readLine(in);
+        int length = -1;
+        for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+            if (header.toLowerCase().startsWith("content-length:")) {
+                length = Integer.parseInt(header.substring("content-length:".length()).trim());
+            }
+        }
+        final StringBuilder body = new StringBuilder();
+        if (length >= 0) {
+            body.append(new String(in.readNBytes(length), UTF_8));
+        } else {
+            for (int chunk = Integer.parseInt(readLine(in), 16); chunk > 0; chunk = Integer.parseInt(readLine(in), 16)) {
+                body.append(new String(in.readNBytes(chunk), UTF_8));
+                readLine(in);
+            }
+            readLine(in);
+        }
+        return List.of(statusLine, body.toString());
+    }
+    
+    /**
+     * @return the next line of in, without its CRLF
+     */
+    private static String readLine(InputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c < 0) {
+                throw new IOException("connection closed");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+    
+    // covers transport NIO: requests pipelined on one connection, no context for the path
+    @Test
+    public void testNioTransportKeepAlive() throws IOException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of(puzzleName1, validPuzzle1)), 4949, false, WebServer.Transport.NIO);
+        server.start();
+        
+        try (Socket socket = new Socket("localhost", server.port())) {
+            // all four requests are sent at once, and answered in order on the same connection
+            final OutputStream out = socket.getOutputStream();
+            out.write(("GET /createGame/donald/" + puzzleName1 + " HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /guess/donald/0/star HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /nowhere HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /check/zach HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(UTF_8));
+            out.flush();
+            final InputStream in = socket.getInputStream();
+            
+            final List<String> create = readResponse(in);
+            assertEquals("HTTP/1.1 200 OK", create.get(0), "expected success creating the game");
+            assertTrue(create.get(1).startsWith(">>"), "expected the new game");
+            final List<String> guess = readResponse(in);
+            assertEquals("HTTP/1.1 200 OK", guess.get(0), "expected success guessing");
+            assertTrue(guess.get(1).contains("star"), "expected the guess in the game");
+            assertEquals("HTTP/1.1 404 Not Found", readResponse(in).get(0), "expected no context for the path");
+            assertEquals("HTTP/1.1 404 Not Found", readResponse(in).get(0), "expected an error for a player in no game");
+        }
+        assertEquals(2, server.getGameIDToPuzzle().get("0").getVersion(), "expected the guess applied");
+        
+        server.stop();
+    }
+    
+    // covers transport NIO: tens of thousands of requests with no context pipelined on one connection
+    @Test
+    public void testNioTransportManyPipelinedRequests() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of(puzzleName1, validPuzzle1)), 4949, false, WebServer.Transport.NIO);
+        server.start();
+        
+        // every request is answered on the selector thread, which must not recurse from one to the next; a large request
+        // first grows the input buffer of the connection, so that tens of thousands of requests are buffered at once
+        final int requests = 50_000;
+        final int largeBody = 900_000;
+        try (Socket socket = new Socket("localhost", server.port())) {
+            socket.setSoTimeout(30_000);
+            final OutputStream out = socket.getOutputStream();
+            final Thread writer = new Thread(() -> {
+                try {
+                    out.write(("POST /nowhere HTTP/1.1\r\nContent-Length: " + largeBody + "\r\n\r\n").getBytes(UTF_8));
+                    out.write(new byte[largeBody]);
+                    final byte[] request = "GET /nowhere HTTP/1.1\r\n\r\n".getBytes(UTF_8);
+                    for (int i = 0; i < requests; i++) {
+                        out.write(request);
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    // the failure shows as a missing response
+                }
+            });
+            writer.start();
+            final InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertEquals("HTTP/1.1 404 Not Found", readResponse(in).get(0), "expected no context for the large request");
+            for (int i = 0; i < requests; i++) {
+                assertEquals("HTTP/1.1 404 Not Found", readResponse(in).get(0), "expected no context for request " + i);
+            }
+            writer.join();
+        }
+        
+        // the server still answers a new connection
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.port() + "/getAllPuzzles/" + "donald").openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        assertEquals(SUCCESS, connection.getResponseCode(), "Expected 200 response code");
+        
+        server.stop();
+    }
+    
+    // covers transport NIO: watcher waiting for a change, event stream
+    @Test
+    public void testNioTransportWatchAndStream() throws IOException, InterruptedException {
+        String puzzlepath1 = "puzzles/simple.puzzle";
+        Puzzle validPuzzle1 = Puzzle.parseFromFile(puzzlepath1);
+        String puzzleName1 = Utilities.getFileNameWithoutExtensionWithForwardSlash(puzzlepath1);
+        final WebServer server = new WebServer(PuzzleCatalog.eager(Map.of(puzzleName1, validPuzzle1)), 4949, false, WebServer.Transport.NIO);
+        server.start();
+        new URL("http://localhost:" + server.port() + "/createGame/" + "donald/" + puzzleName1).openStream().close();
+        
+        // the headers of a watcher are sent at once, and its body after the change
+        final HttpURLConnection watch = (HttpURLConnection) new URL("http://localhost:" + server.port() + "/watchGame/" + "donald?since=1").openConnection();
+        assertEquals(SUCCESS, watch.getResponseCode(), "Expected 200 response code");
+        final HttpURLConnection stream = (HttpURLConnection) new URL("http://localhost:" + server.port() + "/streamGame/" + "donald").openConnection();
+        final BufferedReader events = new BufferedReader(new InputStreamReader(stream.getInputStream(), UTF_8));
+        assertEquals("1", readEvent(events).get(0), "expected a snapshot of the first version");
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (server.getWaitingWatcherCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, server.getWaitingWatcherCount(), "expected the watcher and the stream waiting");
+        
+        new URL("http://localhost:" + server.port() + "/guess/" + "donald/0/star").openStream().close();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(watch.getInputStream(), UTF_8));
+        assertEquals("2", reader.lines().collect(Collectors.joining()).split("[|]")[3], "expected version after the guess");
+        final List<String> guess = readEvent(events);
+        assertEquals("2", guess.get(0), "expected id of the version after the guess");
+        assertEquals("~~ 1\n(0, \"star\")\n(1, \"*a****\")", guess.get(1).split("[|]")[0], "expected only the guess and the entry it crosses");
+        
+        new URL("http://localhost:" + server.port() + "/exitGame/" + "donald").openStream().close();
+        readEvent(events);
+        assertEquals(List.of(), readEvent(events), "expected the stream to end");
+        
+        server.stop();
+    }
 }